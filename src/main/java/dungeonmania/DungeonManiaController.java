@@ -5,8 +5,10 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import dungeonmania.exceptions.InvalidActionException;
+import dungeonmania.model.Game;
 import dungeonmania.model.GameWrapper;
 import dungeonmania.model.entities.Entity;
+import dungeonmania.model.entities.movings.movement.DistanceTable;
 import dungeonmania.model.goal.Goal;
 import dungeonmania.model.mode.Hard;
 import dungeonmania.model.mode.Mode;
@@ -29,6 +31,23 @@ public class DungeonManiaController {
 
     private List<GameWrapper> games = new ArrayList<>();
     private GameWrapper currentGame;
+    private int distanceTableThreshold = 0; // off unless set
+
+    /**
+     * Turns on all-pairs distance tables for games started or loaded from now on, in
+     * dungeons with at most a given number of unblocked cells.
+     *
+     * @param maxWalkableCells largest number of unblocked cells to build a table for, or 0
+     * to turn tables off
+     * @throws IllegalArgumentException if maxWalkableCells is negative or more than
+     * DistanceTable.MAX_NODES
+     */
+    public void setDistanceTableThreshold(int maxWalkableCells) {
+        if (maxWalkableCells < 0 || maxWalkableCells > DistanceTable.MAX_NODES) {
+            throw new IllegalArgumentException(String.valueOf(maxWalkableCells));
+        }
+        this.distanceTableThreshold = maxWalkableCells;
+    }
 
     /**
      * Get the name of the file for the frontend skin customisation
@@ -117,7 +136,11 @@ public class DungeonManiaController {
         Goal goal = EntityFactory.extractGoal(dungeonName);
 
         // create new game
-        GameWrapper newGame = new GameWrapper(dungeonName, entities, goal, mode);
+        Game game = new Game(dungeonName, entities, goal, mode);
+        EntityFactory.applyDimensions(dungeonName, game);
+        game.setTemplateHash(EntityFactory.getTemplateHash(dungeonName), true);
+        game.setDistanceTableThreshold(distanceTableThreshold);
+        GameWrapper newGame = new GameWrapper(game);
         games.add(newGame);
         currentGame = newGame;
 
@@ -174,7 +197,14 @@ public class DungeonManiaController {
 
         // load game
         JSONObject game = GameLoader.loadSavedGame(id);
-        GameWrapper newGame = new GameWrapper(GameLoader.JSONObjectToGame(game));
+        Game loadedGame = GameLoader.JSONObjectToGame(game);
+        if (dungeons().contains(loadedGame.getDungeonName())) {
+            String templateHash = EntityFactory.getTemplateHash(loadedGame.getDungeonName());
+            // a saved game may have changed since it was created, so it never publishes
+            loadedGame.setTemplateHash(templateHash, false);
+        }
+        loadedGame.setDistanceTableThreshold(distanceTableThreshold);
+        GameWrapper newGame = new GameWrapper(loadedGame);
 
         games.add(newGame);
         currentGame = newGame;
@@ -285,7 +315,10 @@ public class DungeonManiaController {
         Goal goal = EntityFactory.extractGoal(mazeJSON);
 
         // generate the new game
-        GameWrapper newGame = new GameWrapper("Dungeon Builder", entities, goal, mode);
+        Game game = new Game("Dungeon Builder", entities, goal, mode);
+        EntityFactory.applyDimensions(mazeJSON, game);
+        game.setDistanceTableThreshold(distanceTableThreshold);
+        GameWrapper newGame = new GameWrapper(game);
         games.add(newGame);
         currentGame = newGame;
         return newGame.getDungeonResponse();
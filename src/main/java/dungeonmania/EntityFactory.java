@@ -1,5 +1,6 @@
 package dungeonmania;
 
+import dungeonmania.model.Game;
 import dungeonmania.model.entities.Entity;
 import dungeonmania.model.entities.buildables.Bow;
 import dungeonmania.model.entities.buildables.Buildable;
@@ -75,6 +76,26 @@ public class EntityFactory {
         }
     }
 
+    /**
+     * Get a hash of the contents of a dungeon file, which is the same for every game
+     * created from the file
+     *
+     * @param dungeonName name of dungeon to be hashed (in resources/dungeon)
+     *
+     * @return hash of the dungeon template
+     *
+     * @throws IllegalArgumentException if dungeon cannot be found
+     */
+    public static final String getTemplateHash(String dungeonName)
+        throws IllegalArgumentException {
+        try {
+            String content = FileLoader.loadResourceFile("/dungeons/" + dungeonName + ".json");
+            return dungeonName + "#" + Integer.toHexString(content.hashCode());
+        } catch (IOException e) {
+            throw new IllegalArgumentException(dungeonName);
+        }
+    }
+
     /**
      * Extracts the entities from a given dungeon
      *
@@ -269,6 +290,31 @@ public class EntityFactory {
         return item.clone();
     }
 
+    /**
+     * Applies the explicit size of a dungeon (if it has one) to a game
+     *
+     * @param dungeonName name of dungeon to be extracted from
+     * @param game game to apply the size to
+     *
+     * @throws IllegalArgumentException if dungeon cannot be found
+     */
+    public static final void applyDimensions(String dungeonName, Game game)
+        throws IllegalArgumentException {
+        applyDimensions(loadDungeon(dungeonName), game);
+    }
+
+    /**
+     * Applies the explicit size of a dungeon (if it has one) to a game
+     *
+     * @param dungeon JSONObject for dungeon to be extracted from
+     * @param game game to apply the size to
+     */
+    public static final void applyDimensions(JSONObject dungeon, Game game) {
+        if (dungeon.has("width") && dungeon.has("height")) {
+            game.setDimensions(dungeon.getInt("width"), dungeon.getInt("height"));
+        }
+    }
+
     /**
      * Extracts the goal from a dungeon
      *
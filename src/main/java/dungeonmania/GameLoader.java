@@ -106,8 +106,10 @@ public class GameLoader {
         Goal goal = currentGame.getGoal();
         if (goal != null) currGameJSON.put("goal-condition", goal.toJSON());
 
-        // save the dungeon name of the game
+        // save the dungeon name and size of the game
         currGameJSON.put("dungeonName", currentGame.getDungeonName());
+        currGameJSON.put("width", currentGame.getWidth());
+        currGameJSON.put("height", currentGame.getHeight());
         return currGameJSON;
     }
 
@@ -125,7 +127,9 @@ public class GameLoader {
         String dungeonName = GameLoader.extractDungeonName(json);
 
         // load game and set this game as the current game
-        return new Game(dungeonName, entities, goal, mode);
+        Game game = new Game(dungeonName, entities, goal, mode);
+        EntityFactory.applyDimensions(json, game);
+        return game;
     }
 
     /**
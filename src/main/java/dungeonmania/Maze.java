@@ -290,6 +290,8 @@ public class Maze {
             }
         }
         mazeJSON.put("entities", entities);
+        mazeJSON.put("width", width);
+        mazeJSON.put("height", height);
 
         // adds the goal of the dungeon
         JSONObject goal = new JSONObject();
@@ -0,0 +1,147 @@
+package dungeonmania.model;
+
+import dungeonmania.model.entities.Entity;
+import dungeonmania.util.Position;
+import java.util.Arrays;
+
+/**
+ * Records the Entities of a Game which were added, removed, moved or changed, in the order
+ * it happened. An Entity changes when whether it is passable, its health, bribery or mind
+ * control is set to a new value, or, for a floor switch, when it is triggered or released.
+ * Changes to the inventory of the player are not recorded. Changes are stored in parallel
+ * arrays which are reused between ticks, and can be read by index or visited with
+ * forEach.
+ */
+public final class ChangeJournal {
+
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        MOVED,
+        CHANGED, // the Entity changed state, such as whether it is passable or its health
+    }
+
+    /**
+     * Receives each change recorded in a ChangeJournal
+     */
+    @FunctionalInterface
+    public interface ChangeVisitor {
+        /**
+         * Visits a change
+         *
+         * @param kind kind of change
+         * @param entity Entity which changed
+         * @param previous Position of the Entity before it moved (null unless MOVED)
+         */
+        void visit(Kind kind, Entity entity, Position previous);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Kind[] kinds = new Kind[INITIAL_CAPACITY];
+    private Entity[] entities = new Entity[INITIAL_CAPACITY];
+    private Position[] previousPositions = new Position[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Records a change
+     *
+     * @param kind kind of change
+     * @param entity Entity which changed
+     * @param previous Position of the Entity before it moved (null unless MOVED)
+     */
+    public final void record(Kind kind, Entity entity, Position previous) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            entities = Arrays.copyOf(entities, size * 2);
+            previousPositions = Arrays.copyOf(previousPositions, size * 2);
+        }
+        kinds[size] = kind;
+        entities[size] = entity;
+        previousPositions[size] = previous;
+        size++;
+    }
+
+    /**
+     * Removes all recorded changes, keeping the storage for reuse
+     */
+    public final void clear() {
+        Arrays.fill(entities, 0, size, null);
+        Arrays.fill(previousPositions, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Get the number of recorded changes
+     *
+     * @return number of changes
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether any changes have been recorded
+     *
+     * @return true if there are no changes, false otherwise
+     */
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the kind of a recorded change
+     *
+     * @param index index of the change
+     *
+     * @return kind of change
+     */
+    public final Kind getKind(int index) {
+        checkIndex(index);
+        return kinds[index];
+    }
+
+    /**
+     * Get the Entity of a recorded change
+     *
+     * @param index index of the change
+     *
+     * @return Entity which changed
+     */
+    public final Entity getEntity(int index) {
+        checkIndex(index);
+        return entities[index];
+    }
+
+    /**
+     * Get the Position an Entity moved from in a recorded change
+     *
+     * @param index index of the change
+     *
+     * @return previous Position (null unless the change is MOVED)
+     */
+    public final Position getPreviousPosition(int index) {
+        checkIndex(index);
+        return previousPositions[index];
+    }
+
+    /**
+     * Visits every recorded change in order
+     *
+     * @param visitor visitor to receive each change
+     */
+    public final void forEach(ChangeVisitor visitor) {
+        for (int i = 0; i < size; i++) visitor.visit(kinds[i], entities[i], previousPositions[i]);
+    }
+
+    /**
+     * Checks that an index refers to a recorded change
+     *
+     * @param index index of the change
+     *
+     * @throws IndexOutOfBoundsException if there is no change at the index
+     */
+    private final void checkIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+    }
+}
@@ -0,0 +1,137 @@
+package dungeonmania.model;
+
+import java.util.Arrays;
+
+/**
+ * Labels the unblocked cells of a passability grid by the region of cells connected to
+ * them, so whether one cell can be reached from another is a comparison of labels. Labels
+ * are never modified once found, so they may be shared between games with the same topology.
+ */
+public final class ConnectedComponents {
+
+    public static final int BLOCKED = -1;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow; // of the bitboards the regions are filled in
+    private final int[] labels;
+    private final int numComponents;
+
+    /**
+     * Labels every cell of a grid, by flood filling each region in turn from its first
+     * unlabelled cell, a word of cells at a time
+     *
+     * @param grid passability grid to be labelled
+     */
+    public ConnectedComponents(PassabilityGrid grid) {
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.labels = new int[width * height];
+        Arrays.fill(labels, BLOCKED);
+
+        this.wordsPerRow = grid.getWordsPerRow();
+        long[] unlabelled = grid.copyOpenCells();
+        long[] reached = new long[unlabelled.length];
+        int label = 0;
+        for (int w = 0; w < unlabelled.length; w++) {
+            while (unlabelled[w] != 0) {
+                int y = w / wordsPerRow;
+                int x = ((w % wordsPerRow) << 6) + Long.numberOfTrailingZeros(unlabelled[w]);
+                grid.floodFill(x, y, reached);
+                // every earlier cell is labelled, so y is the top row of the region, and a
+                // region spans an unbroken run of rows
+                for (int row = y; row < height; row++) {
+                    if (!label(reached, unlabelled, row, label)) break;
+                }
+                label++;
+            }
+        }
+        this.numComponents = label;
+    }
+
+    /**
+     * Get the number of separate regions of unblocked cells
+     *
+     * @return number of components
+     */
+    public final int getNumComponents() {
+        return numComponents;
+    }
+
+    /**
+     * Get the label of the region a cell belongs to
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     *
+     * @return label of the component, or BLOCKED if the cell is blocked or outside of the grid
+     */
+    public final int getLabel(int x, int y) {
+        int index = indexOf(x, y);
+        return (index == -1) ? BLOCKED : labels[index];
+    }
+
+    /**
+     * Checks whether a cell can be reached by moving from another. A blocked cell may be
+     * moved out of, but not onto.
+     *
+     * @param srcX x-coordinate of the cell moved from
+     * @param srcY y-coordinate of the cell moved from
+     * @param destX x-coordinate of the cell to reach
+     * @param destY y-coordinate of the cell to reach
+     *
+     * @return true if there is a path, false otherwise
+     */
+    public final boolean isConnected(int srcX, int srcY, int destX, int destY) {
+        if (srcX == destX && srcY == destY) return indexOf(srcX, srcY) != -1;
+        int target = getLabel(destX, destY);
+        if (target == BLOCKED || indexOf(srcX, srcY) == -1) return false;
+        if (getLabel(srcX, srcY) == target) return true;
+        // a blocked source joins whichever regions are next to it
+        if (getLabel(srcX, srcY) != BLOCKED) return false;
+        for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+            int label = getLabel(srcX + PassabilityGrid.DX[d], srcY + PassabilityGrid.DY[d]);
+            if (label == target) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Labels the cells of a row reached by a flood fill, and clears them from the fill and
+     * from the unlabelled cells
+     *
+     * @param reached bitboard of the cells reached by the fill
+     * @param unlabelled bitboard of the unblocked cells not labelled yet
+     * @param row y-coordinate of the row
+     * @param label label of the region filled
+     *
+     * @return true if any cells of the row were reached, false otherwise
+     */
+    private final boolean label(long[] reached, long[] unlabelled, int row, int label) {
+        boolean any = false;
+        for (int w = row * wordsPerRow; w < (row + 1) * wordsPerRow; w++) {
+            long bits = reached[w];
+            if (bits == 0) continue;
+            any = true;
+            reached[w] = 0;
+            unlabelled[w] &= ~bits;
+            int start = row * width + ((w % wordsPerRow) << 6);
+            for (; bits != 0; bits &= bits - 1) {
+                labels[start + Long.numberOfTrailingZeros(bits)] = label;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Get the index of the cell at a given coordinate
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     *
+     * @return index of the cell, or -1 if it is outside of the grid
+     */
+    private final int indexOf(int x, int y) {
+        return (x < 0 || x >= width || y < 0 || y >= height) ? -1 : y * width + x;
+    }
+}
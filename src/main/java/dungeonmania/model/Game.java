@@ -13,6 +13,11 @@ import dungeonmania.model.entities.movings.Hydra;
 import dungeonmania.model.entities.movings.Mercenary;
 import dungeonmania.model.entities.movings.MovingEntity;
 import dungeonmania.model.entities.movings.Spider;
+import dungeonmania.model.entities.movings.movement.AStarSearch;
+import dungeonmania.model.entities.movings.movement.ClusterGraph;
+import dungeonmania.model.entities.movings.movement.DistanceField;
+import dungeonmania.model.entities.movings.movement.DistanceTable;
+import dungeonmania.model.entities.movings.movement.MovementState;
 import dungeonmania.model.entities.movings.player.Player;
 import dungeonmania.model.entities.statics.Boulder;
 import dungeonmania.model.entities.statics.FloorSwitch;
@@ -29,17 +34,68 @@ import dungeonmania.util.Direction;
 import dungeonmania.util.Position;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public final class Game {
 
+    // fewest enemies deciding their moves for the work to be split between threads
+    private static final int MIN_PARALLEL_DECISIONS = 4;
+
     private final String dungeonId;
     private final String dungeonName;
+    // Template the game was created from, shared while the topology is that at templateVersion
+    private String templateHash = null;
+    private int templateVersion = -1;
+    private boolean publishesTemplate = false; // true if created from the template just now
     private final List<Entity> entities;
+    // Spatial index of entities by cell (layer is ignored by Position equality)
+    private final Map<Position, List<Entity>> cells = new HashMap<>();
+    // Registry of entities by id
+    private final Map<String, Entity> entitiesById = new HashMap<>();
+    // Registries of entities which are frequently queried by type
+    private Player player;
+    private final List<Enemy> enemies = new ArrayList<>();
+    private final List<Portal> portals = new ArrayList<>();
+    private final Map<String, List<Portal>> portalsByColour = new HashMap<>();
+    private final List<ZombieToastSpawner> spawners = new ArrayList<>();
+    private final List<SwampTile> swampTiles = new ArrayList<>();
+    private final List<Tickable> tickables = new ArrayList<>();
+    // Bounds of the dungeon, widened as entities are added or moved
+    private int maxX = 0;
+    private int maxY = 0;
+    // Passability of each cell, per collision class of MovingEntity
+    private final Map<Class<?>, PassabilityGrid> passabilityGrids = new HashMap<>();
+    // Clusters of each passability grid, for long paths in large dungeons
+    private final Map<Class<?>, ClusterGraph> clusterGraphs = new HashMap<>();
+    // Point to point searches of each passability grid, counting every move as 1
+    private final Map<Class<?>, AStarSearch> pathSearches = new HashMap<>();
+    // Bumped whenever the passability or movement costs of any cell change
+    private int topologyVersion = 0;
+    // Search results, per collision class and source cell, for the current topology version
+    private final PathCache<DistanceField> playerDistanceFields = new PathCache<>(32);
+    // Latest distance field to the player of each collision class, read by parallel decisions
+    private final Map<Class<?>, DistanceField> latestPlayerFields = new HashMap<>();
+    // Connected regions of each passability grid, for the current topology version
+    private final Map<Class<?>, ConnectedComponents> connectedComponents = new HashMap<>();
+    // Topologies shared with other games of the template, or null where none match
+    private final Map<Class<?>, SharedTopology> sharedTopologies = new HashMap<>();
+    // All-pairs tables by collision class, only built if enabled and the dungeon is small
+    private int distanceTableThreshold = 0;
+    private final Map<Class<?>, DistanceTable> distanceTables = new HashMap<>();
+    // Cost of moving onto each cell, for the topology version it was computed for
+    private int[] movementCosts = null;
+    private int movementCostsVersion = -1;
+    // Changes made during the current tick/interact/build (null unless enabled)
+    private ChangeJournal changeJournal = null;
+    private boolean parallelDecisions = true; // enemies decide their moves in parallel
     private final Goal goal;
     private final Mode mode;
     private Position playerSpawnLocation;
@@ -49,6 +105,7 @@ public final class Game {
         this.dungeonId = UUID.randomUUID().toString();
         this.dungeonName = dungeonName;
         this.entities = new ArrayList<>(entities);
+        this.entities.forEach(this::indexEntity);
         this.goal = goal;
         this.mode = mode;
         this.playerSpawnLocation =
@@ -62,6 +119,9 @@ public final class Game {
      */
     public final void addEntity(Entity entity) {
         entities.add(entity);
+        indexEntity(entity);
+        recordChange(ChangeJournal.Kind.ADDED, entity, null);
+        recordSwitchChanges(entity, entity.getPosition(), true);
     }
 
     /**
@@ -72,7 +132,533 @@ public final class Game {
      * @return true if successfully removed, false otherwise
      */
     public final boolean removeEntity(Entity entity) {
-        return entities.remove(entity);
+        if (entitiesById.get(entity.getId()) != entity || !entities.remove(entity)) return false;
+        entitiesById.remove(entity.getId());
+        removeFromCell(entity, entity.getPosition());
+        unregisterType(entity);
+        if (entity.getGame() == this) entity.setGame(null);
+        recordChange(ChangeJournal.Kind.REMOVED, entity, null);
+        recordSwitchChanges(entity, entity.getPosition(), false);
+        return true;
+    }
+
+    /**
+     * Moves an Entity to its new cell in the spatial index. This is called by the
+     * Entity whenever its position is changed.
+     *
+     * @param entity Entity which has moved
+     * @param previous Position of the Entity before it moved
+     */
+    public final void updateEntityPosition(Entity entity, Position previous) {
+        removeFromCell(entity, previous);
+        addToCell(entity, entity.getPosition());
+        if (entity instanceof SwampTile) {
+            markClustersDirty(previous);
+            markClustersDirty(entity.getPosition());
+            bumpTopologyVersion();
+        }
+        recordChange(ChangeJournal.Kind.MOVED, entity, previous);
+        recordSwitchChanges(entity, previous, false);
+        recordSwitchChanges(entity, entity.getPosition(), true);
+    }
+
+    /**
+     * Adds an Entity to the id registry and spatial index, and registers this
+     * game with it
+     *
+     * @param entity Entity to be indexed
+     */
+    private final void indexEntity(Entity entity) {
+        entity.setGame(this);
+        entitiesById.put(entity.getId(), entity);
+        addToCell(entity, entity.getPosition());
+        registerType(entity);
+    }
+
+    /**
+     * Adds an Entity to the registries for its type
+     *
+     * @param entity Entity to be registered
+     */
+    private final void registerType(Entity entity) {
+        if (entity instanceof Player && player == null) {
+            player = (Player) entity;
+        }
+        if (entity instanceof Enemy) enemies.add((Enemy) entity);
+        if (entity instanceof Portal) {
+            Portal portal = (Portal) entity;
+            portals.add(portal);
+            portalsByColour.computeIfAbsent(portal.getColour(), k -> new ArrayList<>()).add(portal);
+        }
+        if (entity instanceof ZombieToastSpawner) spawners.add((ZombieToastSpawner) entity);
+        if (entity instanceof SwampTile) {
+            swampTiles.add((SwampTile) entity);
+            markClustersDirty(entity.getPosition());
+            bumpTopologyVersion();
+        }
+        if (entity instanceof Tickable) tickables.add((Tickable) entity);
+    }
+
+    /**
+     * Removes an Entity from the registries for its type
+     *
+     * @param entity Entity to be unregistered
+     */
+    private final void unregisterType(Entity entity) {
+        if (entity == player) {
+            // Fall back to any other player remaining in the game
+            player =
+                entities
+                    .stream()
+                    .filter(e -> e instanceof Player)
+                    .map(e -> (Player) e)
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (entity instanceof Enemy) enemies.remove(entity);
+        if (entity instanceof Portal) {
+            Portal portal = (Portal) entity;
+            portals.remove(portal);
+            List<Portal> pair = portalsByColour.get(portal.getColour());
+            if (pair != null) {
+                pair.remove(portal);
+                if (pair.isEmpty()) portalsByColour.remove(portal.getColour());
+            }
+        }
+        if (entity instanceof ZombieToastSpawner) spawners.remove(entity);
+        if (entity instanceof SwampTile) {
+            swampTiles.remove(entity);
+            markClustersDirty(entity.getPosition());
+            bumpTopologyVersion();
+        }
+        if (entity instanceof Tickable) tickables.remove(entity);
+    }
+
+    /**
+     * Adds an Entity to the cell at a given Position
+     *
+     * @param entity Entity to be added
+     * @param position Position of the cell
+     */
+    private final void addToCell(Entity entity, Position position) {
+        if (position == null) return;
+        cells.computeIfAbsent(position, k -> new ArrayList<>()).add(entity);
+        widenBounds(position.getX(), position.getY());
+        refreshCell(position);
+    }
+
+    /**
+     * Removes an Entity from the cell at a given Position, dropping the cell if it
+     * becomes empty
+     *
+     * @param entity Entity to be removed
+     * @param position Position of the cell
+     */
+    private final void removeFromCell(Entity entity, Position position) {
+        if (position == null) return;
+        List<Entity> cell = cells.get(position);
+        if (cell == null) return;
+        cell.remove(entity);
+        if (cell.isEmpty()) cells.remove(position);
+        refreshCell(position);
+    }
+
+    /**
+     * Updates the passability of the cell an Entity is on, after the passable status of
+     * the Entity has changed
+     *
+     * @param entity Entity which has changed
+     */
+    public final void updateEntityPassability(Entity entity) {
+        refreshCell(entity.getPosition());
+        recordChange(ChangeJournal.Kind.CHANGED, entity, null);
+    }
+
+    /**
+     * Records that the state of an Entity has changed, such as its health, bribery or mind
+     * control. This is called by the Entity whenever such state is set to a new value.
+     *
+     * @param entity Entity which has changed
+     */
+    public final void updateEntityState(Entity entity) {
+        recordChange(ChangeJournal.Kind.CHANGED, entity, null);
+    }
+
+    /**
+     * Turns recording of Entities being added, removed, moved or changed on or off. While
+     * enabled, the journal is cleared at the start of every tick, interact and build.
+     *
+     * @param enabled true to record changes, false to stop recording
+     */
+    public final void setChangeJournalEnabled(boolean enabled) {
+        if (!enabled) {
+            changeJournal = null;
+        } else if (changeJournal == null) {
+            changeJournal = new ChangeJournal();
+        }
+    }
+
+    /**
+     * Turns deciding the moves of enemies in parallel on or off. Ticks play out the same
+     * either way, so this only changes how much of a tick runs on other threads.
+     *
+     * @param enabled true to decide moves in parallel, false to decide them in turn
+     */
+    public final void setParallelDecisionsEnabled(boolean enabled) {
+        parallelDecisions = enabled;
+    }
+
+    /**
+     * Get the Entities added, removed, moved or changed during the latest tick, interact or
+     * build
+     *
+     * @return change journal, or null if recording changes is not enabled
+     */
+    public final ChangeJournal getChangeJournal() {
+        return changeJournal;
+    }
+
+    /**
+     * Records a change to an Entity, if recording changes is enabled
+     *
+     * @param kind kind of change
+     * @param entity Entity which changed
+     * @param previous Position of the Entity before it moved (null unless MOVED)
+     */
+    private final void recordChange(ChangeJournal.Kind kind, Entity entity, Position previous) {
+        if (changeJournal != null) changeJournal.record(kind, entity, previous);
+    }
+
+    /**
+     * Records a change to the floor switches on a cell, if a Boulder moving onto or off of
+     * the cell has changed whether they are triggered and recording changes is enabled
+     *
+     * @param entity Entity which moved onto or off of the cell
+     * @param position Position of the cell
+     * @param entered true if the Entity moved onto the cell, false if it moved off
+     */
+    private final void recordSwitchChanges(Entity entity, Position position, boolean entered) {
+        if (changeJournal == null || !(entity instanceof Boulder) || position == null) return;
+        List<Entity> cell = cells.get(position);
+        if (cell == null) return;
+        // switches are triggered by any boulder, so only the first on or last off counts
+        int numBoulders = 0;
+        for (Entity e : cell) if (e instanceof Boulder) numBoulders++;
+        if (numBoulders != (entered ? 1 : 0)) return;
+        for (Entity e : cell) {
+            if (e instanceof FloorSwitch) recordChange(ChangeJournal.Kind.CHANGED, e, null);
+        }
+    }
+
+    /**
+     * Clears the change journal before a tick, interact or build, if recording changes
+     * is enabled
+     */
+    private final void startChangeJournal() {
+        if (changeJournal != null) changeJournal.clear();
+    }
+
+    /**
+     * Get the passability grid shared by all MovingEntities with the same collision
+     * rules as a given MovingEntity, building it if it does not exist yet
+     *
+     * @param entity MovingEntity to get the grid for
+     *
+     * @return passability grid covering the bounds of the dungeon
+     */
+    public final PassabilityGrid getPassabilityGrid(MovingEntity entity) {
+        Class<?> collisionClass = PassabilityGrid.getCollisionClass(entity);
+        PassabilityGrid grid = passabilityGrids.get(collisionClass);
+        if (grid == null) {
+            grid = new PassabilityGrid(entity, getWidth(), getHeight());
+            for (Map.Entry<Position, List<Entity>> cell : cells.entrySet()) {
+                Position position = cell.getKey();
+                grid.refresh(position.getX(), position.getY(), cell.getValue());
+            }
+            passabilityGrids.put(collisionClass, grid);
+        }
+        return grid;
+    }
+
+    /**
+     * Get the cluster graph shared by all MovingEntities with the same collision rules as a
+     * given MovingEntity, creating it if it does not exist yet
+     *
+     * @param entity MovingEntity to get the cluster graph for
+     *
+     * @return cluster graph over the passability grid of the entity
+     */
+    public final ClusterGraph getClusterGraph(MovingEntity entity) {
+        return clusterGraphs.computeIfAbsent(
+            PassabilityGrid.getCollisionClass(entity),
+            k -> new ClusterGraph(this, getPassabilityGrid(entity))
+        );
+    }
+
+    /**
+     * Get the point to point search shared by all MovingEntities with the same collision
+     * rules as a given MovingEntity, where every move costs 1. The search reuses its buffers,
+     * so each query must finish before the next starts.
+     *
+     * @param entity MovingEntity to get the search for
+     *
+     * @return search over the passability grid of the entity
+     */
+    public final AStarSearch getPathSearch(MovingEntity entity) {
+        return pathSearches.computeIfAbsent(
+            PassabilityGrid.getCollisionClass(entity),
+            k -> new AStarSearch(this, entity, false)
+        );
+    }
+
+    /**
+     * Marks the cluster containing a cell to be rebuilt in every cluster graph
+     *
+     * @param position Position of the cell
+     */
+    private final void markClustersDirty(Position position) {
+        if (position == null) return;
+        for (ClusterGraph clusterGraph : clusterGraphs.values()) {
+            clusterGraph.markDirty(position.getX(), position.getY());
+        }
+    }
+
+    /**
+     * Get the distance to the player from every cell, for all MovingEntities with the same
+     * collision rules as a given MovingEntity. Fields are shared for as long as the topology
+     * version is unchanged, so they are reused whenever the player returns to a cell. Once
+     * the field for the current position of the player has been got, getting it again only
+     * reads the game, so enemies deciding their moves in parallel may get it.
+     *
+     * @param entity MovingEntity to get the distance field for
+     *
+     * @return distance field leading to the player, or null if there is no player
+     */
+    public final DistanceField getPlayerDistanceField(MovingEntity entity) {
+        Player player = getPlayer();
+        if (player == null) return null;
+        Class<?> collisionClass = PassabilityGrid.getCollisionClass(entity);
+        Position target = player.getPosition();
+        DistanceField latest = latestPlayerFields.get(collisionClass);
+        if (latest != null && latest.hasTarget(target)) return latest;
+        int cell = getPassabilityGrid(entity).indexOf(target.getX(), target.getY());
+        DistanceField field = playerDistanceFields.get(collisionClass, cell);
+        if (field == null) {
+            SharedTopology topology = getSharedTopology(entity);
+            Supplier<DistanceField> find = () -> new DistanceField(this, entity, target);
+            field = (topology == null) ? find.get() : topology.getDistanceField(cell, find);
+            playerDistanceFields.put(collisionClass, cell, field);
+        }
+        latestPlayerFields.put(collisionClass, field);
+        return field;
+    }
+
+    /**
+     * Turns on all-pairs distance tables for dungeons with at most a given number of
+     * unblocked cells, and builds the tables for every enemy in the dungeon. Tables are
+     * shared with other games of the same template until the topology of the game changes.
+     *
+     * @param maxWalkableCells largest number of unblocked cells to build a table for, or 0
+     * to turn tables off
+     *
+     * @throws IllegalArgumentException if maxWalkableCells is negative or more than
+     * DistanceTable.MAX_NODES
+     */
+    public final void setDistanceTableThreshold(int maxWalkableCells) {
+        if (maxWalkableCells < 0 || maxWalkableCells > DistanceTable.MAX_NODES) {
+            throw new IllegalArgumentException(String.valueOf(maxWalkableCells));
+        }
+        distanceTableThreshold = maxWalkableCells;
+        distanceTables.clear();
+        for (Enemy enemy : enemies) getDistanceTable(enemy);
+    }
+
+    /**
+     * Get the largest number of unblocked cells to build a distance table for
+     *
+     * @return threshold, or 0 if distance tables are turned off
+     */
+    public final int getDistanceTableThreshold() {
+        return distanceTableThreshold;
+    }
+
+    /**
+     * Sets the hash of the dungeon template the game was created from. Games of the same
+     * template share search results until their topology changes. Only games created from
+     * the template just now publish its topology for others to share, as the topology of a
+     * loaded or rewound game may have changed since.
+     *
+     * @param templateHash hash of the template
+     * @param publish true if the game was just created from the template, false if it may
+     * only share a topology published by another game
+     */
+    public final void setTemplateHash(String templateHash, boolean publish) {
+        this.templateHash = templateHash;
+        this.templateVersion = topologyVersion;
+        this.publishesTemplate = publish;
+        sharedTopologies.clear();
+    }
+
+    /**
+     * Get the hash of the dungeon template the game was created from
+     *
+     * @return hash of the template, or null if the game does not share search results
+     */
+    public final String getTemplateHash() {
+        return templateHash;
+    }
+
+    /**
+     * Get the topology shared with other games of the same template, for all MovingEntities
+     * with the same collision rules as a given MovingEntity. Once the topology of the game
+     * changes, its search results are kept to itself.
+     *
+     * @param entity MovingEntity to get the shared topology for
+     *
+     * @return topology matching the current passability and movement costs, or null if
+     *         there is none to share
+     */
+    private final SharedTopology getSharedTopology(MovingEntity entity) {
+        if (templateHash == null || topologyVersion != templateVersion) return null;
+        Class<?> collisionClass = PassabilityGrid.getCollisionClass(entity);
+        if (!sharedTopologies.containsKey(collisionClass)) {
+            PassabilityGrid grid = getPassabilityGrid(entity);
+            int[] costs = getMovementCosts();
+            sharedTopologies.put(
+                collisionClass,
+                publishesTemplate
+                    ? SharedTopology.publish(templateHash, collisionClass, grid, costs)
+                    : SharedTopology.find(templateHash, collisionClass, grid, costs)
+            );
+        }
+        return sharedTopologies.get(collisionClass);
+    }
+
+    /**
+     * Get the cost of the shortest path between every pair of cells, for all MovingEntities
+     * with the same collision rules as a given MovingEntity. The table is kept for as long
+     * as the topology version is unchanged.
+     *
+     * @param entity MovingEntity to get the distance table for
+     *
+     * @return distance table, or null if tables are turned off or the dungeon is too large
+     */
+    public final DistanceTable getDistanceTable(MovingEntity entity) {
+        if (distanceTableThreshold == 0) return null;
+        Class<?> collisionClass = PassabilityGrid.getCollisionClass(entity);
+        if (!distanceTables.containsKey(collisionClass)) {
+            PassabilityGrid grid = getPassabilityGrid(entity);
+            DistanceTable table = null;
+            if (grid.getNumOpenCells() <= distanceTableThreshold) {
+                SharedTopology topology = getSharedTopology(entity);
+                int[] costs = getMovementCosts();
+                Supplier<DistanceTable> build = () -> DistanceTable.build(grid, costs);
+                table = (topology == null) ? build.get() : topology.getDistanceTable(build);
+            }
+            distanceTables.put(collisionClass, table);
+        }
+        return distanceTables.get(collisionClass);
+    }
+
+    /**
+     * Checks whether a MovingEntity could move from one Position to another, following the
+     * collision rules of its class
+     *
+     * @param entity MovingEntity whose collision rules are followed
+     * @param src Position to start from
+     * @param dest Position to reach
+     *
+     * @return true if there is a path, false otherwise
+     */
+    public final boolean isReachable(MovingEntity entity, Position src, Position dest) {
+        if (src.equals(dest)) return true;
+        return getConnectedComponents(entity)
+            .isConnected(src.getX(), src.getY(), dest.getX(), dest.getY());
+    }
+
+    /**
+     * Get the connected regions of the passability grid shared by all MovingEntities with
+     * the same collision rules as a given MovingEntity, labelling them if the topology has
+     * changed since they were last labelled
+     *
+     * @param entity MovingEntity to get the connected regions for
+     *
+     * @return labelled regions of the grid
+     */
+    public final ConnectedComponents getConnectedComponents(MovingEntity entity) {
+        return connectedComponents.computeIfAbsent(
+            PassabilityGrid.getCollisionClass(entity),
+            k -> {
+                SharedTopology topology = getSharedTopology(entity);
+                Supplier<ConnectedComponents> find = () ->
+                    new ConnectedComponents(getPassabilityGrid(entity));
+                return (topology == null) ? find.get() : topology.getConnectedComponents(find);
+            }
+        );
+    }
+
+    /**
+     * Get the cost of moving onto each cell, which is the movement factor of any swamp
+     * tile on the cell and 1 otherwise. The result is shared for as long as the topology
+     * version is unchanged, and must not be modified.
+     *
+     * @return cost of each cell index, indexed as in the passability grids
+     */
+    public final int[] getMovementCosts() {
+        if (movementCostsVersion == topologyVersion) return movementCosts;
+        int width = getWidth();
+        movementCosts = new int[width * getHeight()];
+        Arrays.fill(movementCosts, 1);
+        for (SwampTile swampTile : swampTiles) {
+            Position position = swampTile.getPosition();
+            if (!isInBounds(position.getX(), position.getY())) continue;
+            // the first swamp tile on a cell decides its cost
+            movementCosts[position.getY() * width + position.getX()] =
+                getSwampTile(position).getMovementFactor();
+        }
+        movementCostsVersion = topologyVersion;
+        return movementCosts;
+    }
+
+    /**
+     * Get the topology version of the dungeon, which changes whenever the passability or
+     * movement cost of any cell changes. Search results computed for one version remain
+     * valid for as long as it is current.
+     *
+     * @return topology version
+     */
+    public final int getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    /**
+     * Moves to a new topology version, so search results for the previous one are dropped
+     */
+    private final void bumpTopologyVersion() {
+        topologyVersion++;
+        playerDistanceFields.clear();
+        latestPlayerFields.clear();
+        connectedComponents.clear();
+        distanceTables.clear();
+        sharedTopologies.clear();
+    }
+
+    /**
+     * Recomputes the passability of a cell in every passability grid
+     *
+     * @param position Position of the cell
+     */
+    private final void refreshCell(Position position) {
+        if (position == null || passabilityGrids.isEmpty()) return;
+        List<Entity> cell = cells.get(position);
+        boolean changed = false;
+        for (Map.Entry<Class<?>, PassabilityGrid> grid : passabilityGrids.entrySet()) {
+            if (!grid.getValue().refresh(position.getX(), position.getY(), cell)) continue;
+            changed = true;
+            ClusterGraph clusterGraph = clusterGraphs.get(grid.getKey());
+            if (clusterGraph != null) clusterGraph.markDirty(position.getX(), position.getY());
+        }
+        if (changed) bumpTopologyVersion();
     }
 
     /**
@@ -83,7 +669,18 @@ public final class Game {
      * @return Entity with the given id
      */
     public final Entity getEntity(String entityId) {
-        return entities.stream().filter(e -> e.getId().equals(entityId)).findFirst().orElse(null);
+        return entitiesById.get(entityId);
+    }
+
+    /**
+     * Checks whether the game contains an Entity with the given id
+     *
+     * @param entityId id of the Entity
+     *
+     * @return true if the Entity is in the game, false otherwise
+     */
+    public final boolean hasEntity(String entityId) {
+        return entitiesById.containsKey(entityId);
     }
 
     /**
@@ -92,12 +689,7 @@ public final class Game {
      * @return Player object
      */
     public final Player getPlayer() {
-        return entities
-            .stream()
-            .filter(e -> e instanceof Player)
-            .map(e -> (Player) e)
-            .findFirst()
-            .orElse(null);
+        return player;
     }
 
     /**
@@ -125,10 +717,8 @@ public final class Game {
      * @return list of Entity objects
      */
     public final List<Entity> getEntities(Position position) {
-        return entities
-            .stream()
-            .filter(e -> e.getPosition().equals(position))
-            .collect(Collectors.toList());
+        List<Entity> cell = cells.get(position);
+        return (cell != null) ? new ArrayList<>(cell) : new ArrayList<>();
     }
 
     /**
@@ -170,49 +760,110 @@ public final class Game {
     /**
      * Get all the enemies in the game
      *
-     * @return list of Enemy objects
+     * @return unmodifiable list of Enemy objects
      */
     public final List<Enemy> getAllEnemies() {
-        return entities
-            .stream()
-            .filter(e -> e instanceof Enemy)
-            .map(e -> (Enemy) e)
-            .collect(Collectors.toList());
+        return Collections.unmodifiableList(enemies);
     }
 
     /**
      * Get all the portals in the game
      *
-     * @return list of Portal objects
+     * @return unmodifiable list of Portal objects
      */
     public final List<Portal> getAllPortals() {
-        return entities
-            .stream()
-            .filter(e -> e instanceof Portal)
-            .map(e -> (Portal) e)
-            .collect(Collectors.toList());
+        return Collections.unmodifiableList(portals);
+    }
+
+    /**
+     * Get the portal which a given portal teleports to, that is, the first other portal
+     * in the game with the same colour
+     *
+     * @param portal Portal to be teleported from
+     *
+     * @return corresponding Portal, or null if there is none
+     */
+    public final Portal getCorrespondingPortal(Portal portal) {
+        List<Portal> pair = portalsByColour.get(portal.getColour());
+        if (pair == null) return null;
+        for (Portal other : pair) if (other != portal) return other;
+        return null;
     }
 
     /**
-     * Finds the maximum X coordinate of any Entity positions
+     * Get all the zombie toast spawners in the game
      *
-     * @return maximum X coordinate
+     * @return unmodifiable list of ZombieToastSpawner objects
      */
-    private final int findMaxX() {
-        int maxX = 0;
-        for (Entity e : entities) if (e.getX() > maxX) maxX = e.getX();
-        return maxX;
+    public final List<ZombieToastSpawner> getAllSpawners() {
+        return Collections.unmodifiableList(spawners);
     }
 
     /**
-     * Finds the maximum Y coordinate of any Entity positions
+     * Get all the swamp tiles in the game
      *
-     * @return maximum Y coordinate
+     * @return unmodifiable list of SwampTile objects
      */
-    private final int findMaxY() {
-        int maxY = 0;
-        for (Entity e : entities) if (e.getY() > maxY) maxY = e.getY();
-        return maxY;
+    public final List<SwampTile> getAllSwampTiles() {
+        return Collections.unmodifiableList(swampTiles);
+    }
+
+    /**
+     * Sets an explicit size for the dungeon. The bounds are only ever widened, so
+     * they still cover any Entity positions outside of the given size.
+     *
+     * @param width width of the dungeon
+     * @param height height of the dungeon
+     */
+    public final void setDimensions(int width, int height) {
+        widenBounds(width - 1, height - 1);
+    }
+
+    /**
+     * Get the width of the dungeon
+     *
+     * @return width, covering every position an Entity has occupied
+     */
+    public final int getWidth() {
+        return maxX + 1;
+    }
+
+    /**
+     * Get the height of the dungeon
+     *
+     * @return height, covering every position an Entity has occupied
+     */
+    public final int getHeight() {
+        return maxY + 1;
+    }
+
+    /**
+     * Checks whether a coordinate is within the bounds of the dungeon
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     *
+     * @return true if in bounds, false otherwise
+     */
+    public final boolean isInBounds(int x, int y) {
+        return x >= 0 && x <= maxX && y >= 0 && y <= maxY;
+    }
+
+    /**
+     * Widens the bounds of the dungeon to include a given coordinate
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    private final void widenBounds(int x, int y) {
+        if (x <= maxX && y <= maxY) return;
+        maxX = Math.max(x, maxX);
+        maxY = Math.max(y, maxY);
+        // passability grids no longer cover the dungeon, so they are rebuilt when needed
+        passabilityGrids.clear();
+        clusterGraphs.clear();
+        pathSearches.clear();
+        bumpTopologyVersion();
     }
 
     /**
@@ -224,64 +875,80 @@ public final class Game {
      * @return list of possible positions the Entity can move to
      */
     public final List<Position> getMoveablePositions(MovingEntity entity, Position position) {
-        // all positions
         int x = position.getX();
         int y = position.getY();
-        List<Position> positions = new ArrayList<Position>(
-            Arrays.asList(
-                new Position(x, y + 1),
-                new Position(x - 1, y),
-                new Position(x + 1, y),
-                new Position(x, y - 1)
-            )
-        );
-
-        // filter out collisions
-        List<Position> toRemove = new ArrayList<>();
-        getCardinallyAdjacentEntities(position)
-            .stream()
-            .forEach(e -> {
-                if (entity.collision(e)) toRemove.add(e.getPosition());
-            });
-        positions.removeAll(toRemove);
+        List<Position> positions = new ArrayList<>(4);
+        for (Position candidate : Arrays.asList(
+            Position.of(x, y + 1),
+            Position.of(x - 1, y),
+            Position.of(x + 1, y),
+            Position.of(x, y - 1)
+        )) {
+            if (isMoveable(entity, candidate)) positions.add(candidate);
+        }
+        return positions;
+    }
 
-        return positions
-            .stream()
-            .filter(pos ->
-                (
-                    pos.getX() >= 0 &&
-                    pos.getX() <= this.findMaxX() &&
-                    pos.getY() >= 0 &&
-                    pos.getY() <= this.findMaxY()
-                )
-            )
-            .collect(Collectors.toList());
+    /**
+     * Checks whether a given Entity can move onto a given Position
+     *
+     * @param entity Entity to be moved
+     * @param position Position to be moved to
+     *
+     * @return true if the Position is in bounds and not blocked for the Entity
+     */
+    private final boolean isMoveable(MovingEntity entity, Position position) {
+        return !getPassabilityGrid(entity).isBlocked(position.getX(), position.getY());
     }
 
+    /**
+     * Get all the Entities in the 8 cells surrounding a given Position
+     *
+     * @param position Position to search around
+     *
+     * @return list of Entities adjacent (including diagonally) to the Position
+     */
     public final List<Entity> getAdjacentEntities(Position position) {
-        return entities
-            .stream()
-            .filter(e -> Position.isAdjacent(e.getPosition(), position))
-            .collect(Collectors.toList());
+        List<Entity> result = new ArrayList<>();
+        int x = position.getX();
+        int y = position.getY();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                if (dx != 0 || dy != 0) collectEntities(x + dx, y + dy, result);
+            }
+        }
+        return result;
     }
 
+    /**
+     * Get all the Entities in the 4 cells directly above, below, left and right of a
+     * given Position
+     *
+     * @param position Position to search around
+     *
+     * @return list of Entities cardinally adjacent to the Position
+     */
     public final List<Entity> getCardinallyAdjacentEntities(Position position) {
-        return getAdjacentEntities(position)
-            .stream()
-            .filter(e -> {
-                // Cardinally adjacent if one coordinate is (1 or -1) with the other 0
-                Position difference = Position.calculatePositionBetween(e.getPosition(), position);
-                int xDiff = Math.abs(difference.getX());
-                int yDiff = Math.abs(difference.getY());
-                return (
-                    // Ensure both xDiff and yDiff are either 0 or 1
-                    (xDiff == (xDiff & 1)) &&
-                    (yDiff == (yDiff & 1)) &&
-                    // Logical XOR to check that x and y are different
-                    ((xDiff == 1) ^ (yDiff == 1))
-                );
-            })
-            .collect(Collectors.toList());
+        List<Entity> result = new ArrayList<>();
+        int x = position.getX();
+        int y = position.getY();
+        collectEntities(x, y + 1, result);
+        collectEntities(x - 1, y, result);
+        collectEntities(x + 1, y, result);
+        collectEntities(x, y - 1, result);
+        return result;
+    }
+
+    /**
+     * Adds all the Entities at a given coordinate to a list
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param result list to add the Entities to
+     */
+    private final void collectEntities(int x, int y, List<Entity> result) {
+        List<Entity> cell = cells.get(Position.of(x, y));
+        if (cell != null) result.addAll(cell);
     }
 
     /**
@@ -398,19 +1065,16 @@ public final class Game {
         if (itemUsedId != null && itemUsedId.length() == 0) {
             throw new IllegalArgumentException(itemUsedId);
         }
+        startChangeJournal();
         this.tick += 1;
 
         try {
             // Player moves before other entities (so that bribable enemies can follow the player)
             getPlayer().move(this, movementDirection, itemUsedId);
+            decideEnemyMoves();
 
-            List<Tickable> tickables = entities
-                .stream()
-                .filter(e -> e instanceof Tickable)
-                .map(e -> (Tickable) e)
-                .collect(Collectors.toList());
-
-            // Separate loop to avoid concurrency issues when zombie spawner adds new entity
+            // Copy to avoid concurrency issues when zombie spawner adds new entity
+            List<Tickable> tickables = new ArrayList<>(this.tickables);
             tickables.forEach(e -> {
                 if (!(e instanceof Player)) {
                     ((Tickable) e).tick(this);
@@ -425,6 +1089,30 @@ public final class Game {
         return getDungeonResponse();
     }
 
+    /**
+     * Finds the next position of every enemy whose move can be decided ahead, in parallel
+     * against the dungeon as the player has left it. Search results the enemies share are
+     * found first, so the enemies only read the game while deciding. A decision is only
+     * used if nothing it depends on has changed by the time the enemy moves, so the tick
+     * plays out exactly as if every enemy had searched in turn.
+     */
+    private final void decideEnemyMoves() {
+        if (!parallelDecisions) return;
+        List<MovementState> states = new ArrayList<>();
+        for (Enemy enemy : enemies) {
+            MovementState state = enemy.getMovementState();
+            if (state == null || !state.canDecideAhead(this)) continue;
+            getPassabilityGrid(enemy);
+            getConnectedComponents(enemy);
+            getDistanceTable(enemy);
+            getPlayerDistanceField(enemy);
+            states.add(state);
+        }
+        if (states.size() < MIN_PARALLEL_DECISIONS) return;
+        getMovementCosts();
+        states.parallelStream().forEach(state -> state.decide(this));
+    }
+
     /**
      * Builds the given entity
      *
@@ -435,6 +1123,7 @@ public final class Game {
      *                                  to craft the buildable
      */
     public final DungeonResponse build(String buildable) throws InvalidActionException {
+        startChangeJournal();
         Player player = getPlayer();
         Buildable item = EntityFactory.getBuildable(buildable);
         player.craft(this, item);
@@ -456,11 +1145,10 @@ public final class Game {
      */
     public final DungeonResponse interact(String entityId)
         throws IllegalArgumentException, InvalidActionException {
-        if (!entities.stream().map(Entity::getId).collect(Collectors.toList()).contains(entityId)) {
-            throw new IllegalArgumentException(entityId);
-        }
-        MovingEntity player = getPlayer();
         Entity entity = getEntity(entityId);
+        if (entity == null) throw new IllegalArgumentException(entityId);
+        startChangeJournal();
+        MovingEntity player = getPlayer();
         if (entity instanceof BribableEnemy) {
             ((BribableEnemy) entity).interact(this, (Player) player);
         } else if (entity instanceof MovingEntity) {
@@ -498,12 +1186,10 @@ public final class Game {
      * @return SwampTile at the given position
      */
     public SwampTile getSwampTile(Position position) {
-        return entities
-            .stream()
-            .filter(e -> e.getPosition().equals(position) && e instanceof SwampTile)
-            .map(e -> (SwampTile) e)
-            .findFirst()
-            .orElse(null);
+        List<Entity> cell = cells.get(position);
+        if (cell == null) return null;
+        for (Entity e : cell) if (e instanceof SwampTile) return (SwampTile) e;
+        return null;
     }
 
     /**
@@ -514,15 +1200,9 @@ public final class Game {
     public final boolean playerReachedTTPortal() {
         Entity player = getPlayer();
         if (player == null) return false;
-        Position position = player.getPosition();
-
-        return (
-            entities
-                .stream()
-                .filter(e -> e instanceof TimeTravellingPortal && e.getPosition().equals(position))
-                .count() >
-            0
-        );
+        return getEntities(player.getPosition())
+            .stream()
+            .anyMatch(e -> e instanceof TimeTravellingPortal);
     }
 
     /**
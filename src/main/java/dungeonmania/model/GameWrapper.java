@@ -3,7 +3,6 @@ package dungeonmania.model;
 import dungeonmania.GameLoader;
 import dungeonmania.exceptions.InvalidActionException;
 import dungeonmania.model.entities.Entity;
-import dungeonmania.model.entities.movings.Observer;
 import dungeonmania.model.entities.movings.olderPlayer.OlderPlayer;
 import dungeonmania.model.entities.movings.player.Player;
 import dungeonmania.model.goal.Goal;
@@ -127,14 +126,12 @@ public final class GameWrapper {
         activePlayer.removeAllies();
         activePlayer.setInBattle(false);
         activePlayer.setCurrentBattleOpponent(null);
-        // re-attach observers to updated player
-        restoreGame
-            .getEntities()
-            .stream()
-            .filter(e -> e instanceof Observer)
-            .forEach(e -> activePlayer.attach((Observer) e));
+        // re-attach observers (enemies) to updated player
+        restoreGame.getAllEnemies().forEach(activePlayer::attach);
 
         // time travel
+        restoreGame.setTemplateHash(activeGame.getTemplateHash(), false);
+        restoreGame.setDistanceTableThreshold(activeGame.getDistanceTableThreshold());
         activeGame = restoreGame;
         states = states.subList(0, restoreIndex + 1);
 
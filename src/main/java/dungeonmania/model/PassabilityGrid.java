@@ -0,0 +1,383 @@
+package dungeonmania.model;
+
+import dungeonmania.model.entities.Entity;
+import dungeonmania.model.entities.movings.MovingEntity;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bitmap of the cells of a dungeon that block a class of MovingEntity. MovingEntities
+ * share a grid when they share the same collision rules, that is, when they inherit
+ * collision(Entity) from the same class.
+ *
+ * Cells are stored as a bitboard, with a set bit for each unblocked cell. Each row is
+ * padded to a whole number of 64 bit words, with bit i of word w covering x = 64w + i.
+ */
+public final class PassabilityGrid {
+
+    // Offsets to neighbouring cells, in the same order as Game.getMoveablePositions
+    public static final int[] DX = { 0, -1, 1, 0 };
+    public static final int[] DY = { 1, 0, 0, -1 };
+
+    // Class which declares the collision rules of a MovingEntity
+    private static final ClassValue<Class<?>> COLLISION_CLASS = new ClassValue<>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+            try {
+                return type.getMethod("collision", Entity.class).getDeclaringClass();
+            } catch (NoSuchMethodException e) {
+                return type;
+            }
+        }
+    };
+
+    private final MovingEntity mover; // used to evaluate the collision rules
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] open; // bitboard of unblocked cells
+
+    /**
+     * Creates a grid with every cell unblocked
+     *
+     * @param mover any MovingEntity with the collision rules of the grid
+     * @param width width of the dungeon
+     * @param height height of the dungeon
+     */
+    public PassabilityGrid(MovingEntity mover, int width, int height) {
+        this.mover = mover;
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.open = new long[wordsPerRow * height];
+        for (int y = 0; y < height; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                int bits = Math.min(64, width - (w << 6));
+                open[y * wordsPerRow + w] = (bits == 64) ? -1L : (1L << bits) - 1;
+            }
+        }
+    }
+
+    /**
+     * Get the class which declares the collision rules of a MovingEntity
+     *
+     * @param mover MovingEntity to get the collision class of
+     *
+     * @return class which all MovingEntities sharing a grid with the mover inherit from
+     */
+    public static final Class<?> getCollisionClass(MovingEntity mover) {
+        return COLLISION_CLASS.get(mover.getClass());
+    }
+
+    /**
+     * Get the width of the grid
+     *
+     * @return width
+     */
+    public final int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the grid
+     *
+     * @return height
+     */
+    public final int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of words each row of a bitboard laid out like this grid takes up, where
+     * bit x % 64 of word (y * wordsPerRow + x / 64) is the cell at (x, y)
+     *
+     * @return words per row
+     */
+    public final int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Get the index of a cell, which packs its coordinates into a single int
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     *
+     * @return index of the cell, or -1 if it is outside of the grid
+     */
+    public final int indexOf(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return -1;
+        return y * width + x;
+    }
+
+    /**
+     * Get the x-coordinate of a cell from its index
+     *
+     * @param index index of the cell
+     *
+     * @return x-coordinate
+     */
+    public final int getX(int index) {
+        return index % width;
+    }
+
+    /**
+     * Get the y-coordinate of a cell from its index
+     *
+     * @param index index of the cell
+     *
+     * @return y-coordinate
+     */
+    public final int getY(int index) {
+        return index / width;
+    }
+
+    /**
+     * Checks whether a cell blocks the class of MovingEntity
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     *
+     * @return true if blocked or outside of the grid, false otherwise
+     */
+    public final boolean isBlocked(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return true;
+        return (open[y * wordsPerRow + (x >>> 6)] & (1L << x)) == 0;
+    }
+
+    /**
+     * Recomputes whether a cell is blocked from the Entities on it
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param cell Entities on the cell (may be null if there are none)
+     *
+     * @return true if the cell changed, false otherwise
+     */
+    public final boolean refresh(int x, int y, List<Entity> cell) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return false;
+        boolean isBlocked = false;
+        if (cell != null) {
+            for (Entity e : cell) {
+                if (mover.collision(e)) {
+                    isBlocked = true;
+                    break;
+                }
+            }
+        }
+
+        int word = y * wordsPerRow + (x >>> 6);
+        long bit = 1L << x;
+        if (((open[word] & bit) == 0) == isBlocked) return false;
+        open[word] ^= bit;
+        return true;
+    }
+
+    /**
+     * Copies the bitboard of unblocked cells, to be searched or compared with later.
+     *
+     * @return bitboard of the cells which are currently unblocked
+     */
+    public final long[] copyOpenCells() {
+        return open.clone();
+    }
+
+    /**
+     * Checks whether the unblocked cells are those of a copy, without copying the grid.
+     *
+     * @param snapshot bitboard returned by copyOpenCells
+     *
+     * @return true if the same cells are unblocked, false otherwise
+     */
+    public final boolean hasOpenCells(long[] snapshot) {
+        return Arrays.equals(open, snapshot);
+    }
+
+    /**
+     * Counts the unblocked cells
+     *
+     * @return number of cells
+     */
+    public final int getNumOpenCells() {
+        return count(open);
+    }
+
+    /**
+     * Finds every cell reachable from a cell by moving between unblocked cells, expanding
+     * whole words of a row at a time. Each row is filled along its open runs, and rows are
+     * swept down and then up the grid, spreading into the rows either side, until a pair of
+     * sweeps adds no cells.
+     *
+     * @param x x-coordinate of the cell to start from
+     * @param y y-coordinate of the cell to start from
+     *
+     * @return bitboard of the reachable cells, including the starting cell (empty if it is
+     *         outside of the grid)
+     */
+    public final long[] floodFill(int x, int y) {
+        long[] reached = new long[open.length];
+        floodFill(x, y, reached);
+        return reached;
+    }
+
+    /**
+     * Adds every cell reachable from a cell to an empty bitboard, as floodFill does. Sweeps
+     * only cover the rows spanned by the cells reached so far and the rows either side, so
+     * filling a small region of a large grid only touches the rows around it.
+     *
+     * @param x x-coordinate of the cell to start from
+     * @param y y-coordinate of the cell to start from
+     * @param reached empty bitboard laid out like this grid, which the cells are added to
+     */
+    public final void floodFill(int x, int y, long[] reached) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return;
+        reached[y * wordsPerRow + (x >>> 6)] = 1L << x;
+
+        // the starting cell may be blocked, so it is spread from before any sweep
+        fillRow(reached, y);
+        int top = y;
+        int bottom = y;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int row = Math.max(top - 1, 0); row <= Math.min(bottom + 1, height - 1); row++) {
+                if (!spreadInto(reached, row)) continue;
+                changed = true;
+                top = Math.min(top, row);
+                bottom = Math.max(bottom, row);
+            }
+            for (int row = Math.min(bottom + 1, height - 1); row >= Math.max(top - 1, 0); row--) {
+                if (!spreadInto(reached, row)) continue;
+                changed = true;
+                top = Math.min(top, row);
+                bottom = Math.max(bottom, row);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a cell is set in a bitboard laid out like this grid.
+     *
+     * @param cells bitboard of cells
+     * @param x x-coordinate
+     * @param y y-coordinate
+     *
+     * @return true if the cell is in bounds and set, false otherwise
+     */
+    public final boolean contains(long[] cells, int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return false;
+        return (cells[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Counts the cells set in a bitboard.
+     *
+     * @param cells bitboard of cells
+     *
+     * @return number of cells
+     */
+    public static final int count(long[] cells) {
+        int count = 0;
+        for (long word : cells) count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Adds the unblocked cells of a row next to reached cells in the rows either side, then
+     * fills the row along its open runs.
+     *
+     * @param reached bitboard of reached cells
+     * @param row y-coordinate of the row
+     *
+     * @return true if any cells were added, false otherwise
+     */
+    private final boolean spreadInto(long[] reached, int row) {
+        int start = row * wordsPerRow;
+        boolean changed = false;
+        for (int w = 0; w < wordsPerRow; w++) {
+            long adjacent = 0;
+            if (row > 0) adjacent |= reached[start - wordsPerRow + w];
+            if (row < height - 1) adjacent |= reached[start + wordsPerRow + w];
+            long added = adjacent & open[start + w] & ~reached[start + w];
+            if (added != 0) {
+                reached[start + w] |= added;
+                changed = true;
+            }
+        }
+        if (changed) fillRow(reached, row);
+        return changed;
+    }
+
+    /**
+     * Fills a row along its open runs from the reached cells in it, first towards higher x
+     * and then towards lower x, carrying across word boundaries.
+     *
+     * @param reached bitboard of reached cells
+     * @param row y-coordinate of the row
+     */
+    private final void fillRow(long[] reached, int row) {
+        int start = row * wordsPerRow;
+        long carry = 0;
+        for (int w = 0; w < wordsPerRow; w++) {
+            long mask = open[start + w];
+            long seeds = reached[start + w] | (carry & mask);
+            long filled = fillUp(seeds, mask);
+            reached[start + w] = filled;
+            carry = filled >>> 63;
+        }
+        carry = 0;
+        for (int w = wordsPerRow - 1; w >= 0; w--) {
+            long mask = open[start + w];
+            long seeds = reached[start + w] | ((carry << 63) & mask);
+            long filled = fillDown(seeds, mask);
+            reached[start + w] = filled;
+            carry = filled & 1L;
+        }
+    }
+
+    /**
+     * Spreads set bits towards higher bits through a mask, by doubling the distance spread
+     * at each step.
+     *
+     * @param seeds bits to spread from (need not be in the mask)
+     * @param mask bits which may be spread into
+     *
+     * @return seeds together with every bit reached
+     */
+    private static final long fillUp(long seeds, long mask) {
+        seeds |= (seeds << 1) & mask;
+        mask &= mask << 1;
+        seeds |= (seeds << 2) & mask;
+        mask &= mask << 2;
+        seeds |= (seeds << 4) & mask;
+        mask &= mask << 4;
+        seeds |= (seeds << 8) & mask;
+        mask &= mask << 8;
+        seeds |= (seeds << 16) & mask;
+        mask &= mask << 16;
+        return seeds | ((seeds << 32) & mask);
+    }
+
+    /**
+     * Spreads set bits towards lower bits through a mask, by doubling the distance spread
+     * at each step.
+     *
+     * @param seeds bits to spread from (need not be in the mask)
+     * @param mask bits which may be spread into
+     *
+     * @return seeds together with every bit reached
+     */
+    private static final long fillDown(long seeds, long mask) {
+        seeds |= (seeds >>> 1) & mask;
+        mask &= mask >>> 1;
+        seeds |= (seeds >>> 2) & mask;
+        mask &= mask >>> 2;
+        seeds |= (seeds >>> 4) & mask;
+        mask &= mask >>> 4;
+        seeds |= (seeds >>> 8) & mask;
+        mask &= mask >>> 8;
+        seeds |= (seeds >>> 16) & mask;
+        mask &= mask >>> 16;
+        return seeds | ((seeds >>> 32) & mask);
+    }
+}
@@ -0,0 +1,96 @@
+package dungeonmania.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of search results, such as reachable cells and distance
+ * fields. Results are keyed by the collision class of the mover and the cell the search
+ * started from. Results are only valid for the topology version of the dungeon they were
+ * computed for, so the cache is cleared whenever the version changes.
+ *
+ * @param <V> type of search result
+ */
+public final class PathCache<V> {
+
+    private final Map<Key, V> entries;
+
+    /**
+     * Creates an empty cache
+     *
+     * @param capacity maximum number of results kept, after which the least recently used
+     *                 result is dropped
+     */
+    public PathCache(int capacity) {
+        this.entries =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                    return size() > capacity;
+                }
+            };
+    }
+
+    /**
+     * Get a cached result
+     *
+     * @param collisionClass collision class of the mover
+     * @param cell index of the cell the search started from
+     *
+     * @return cached result, or null if there is none
+     */
+    public final V get(Class<?> collisionClass, int cell) {
+        return entries.get(new Key(collisionClass, cell));
+    }
+
+    /**
+     * Caches a result
+     *
+     * @param collisionClass collision class of the mover
+     * @param cell index of the cell the search started from
+     * @param value result to be cached
+     */
+    public final void put(Class<?> collisionClass, int cell, V value) {
+        entries.put(new Key(collisionClass, cell), value);
+    }
+
+    /**
+     * Get the number of cached results
+     *
+     * @return number of results
+     */
+    public final int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops all cached results
+     */
+    public final void clear() {
+        entries.clear();
+    }
+
+    private static final class Key {
+
+        private final Class<?> collisionClass;
+        private final int cell;
+
+        private Key(Class<?> collisionClass, int cell) {
+            this.collisionClass = collisionClass;
+            this.cell = cell;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return collisionClass == other.collisionClass && cell == other.cell;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * collisionClass.hashCode() + cell;
+        }
+    }
+}
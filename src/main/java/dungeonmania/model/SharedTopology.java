@@ -0,0 +1,283 @@
+package dungeonmania.model;
+
+import dungeonmania.model.entities.movings.movement.DistanceField;
+import dungeonmania.model.entities.movings.movement.DistanceTable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Search results for the topology of a dungeon template, shared by every game in the
+ * process created from the template whose passability grid and movement costs for a
+ * collision class are still those it was created with. Such games share one topology, so
+ * its distance fields, labels and distance table are found once rather than once per
+ * game. Shared results are never modified, other than distance fields searching further.
+ *
+ * Only games freshly created from a template publish its topology. Other games, such as
+ * loaded or rewound ones, may only look it up, and a game stops sharing as soon as its own
+ * topology changes, so changed topologies are never published.
+ *
+ * Topologies are looked up by (template hash, collision class, dimensions), and are only
+ * shared once their passability and costs are checked to be equal. The memory taken up by
+ * every topology and its results is bounded, dropping the least recently used topologies
+ * first.
+ */
+public final class SharedTopology {
+
+    // Most memory the topologies of every game in the process may take up
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+    private static final int MAX_RESULTS = 256;
+
+    // Topologies of every template in the process, least recently used first
+    private static final Map<String, SharedTopology> topologies = new LinkedHashMap<>(
+        16,
+        0.75f,
+        true
+    );
+
+    private final Class<?> collisionClass;
+    private final int width;
+    private final int height;
+    private final long[] openCells;
+    private final int[] costs;
+    private final long fieldBytes; // most memory taken up by each distance field
+    private final long labelBytes; // memory taken up by the connected components
+    private final PathCache<DistanceField> distanceFields;
+    private ConnectedComponents connectedComponents = null;
+    private DistanceTable distanceTable = null;
+    private boolean distanceTableBuilt = false; // the table is null if it could not be built
+    // Memory taken up by the topology and its results, updated whenever a result is added
+    private volatile long numBytes;
+
+    private SharedTopology(Class<?> collisionClass, PassabilityGrid grid, int[] costs) {
+        this.collisionClass = collisionClass;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.openCells = grid.copyOpenCells();
+        this.costs = costs;
+        // a field keeps its distances, a copy of the grid, and its queue while searching
+        this.fieldBytes =
+            (long) (Integer.BYTES + Long.BYTES + Integer.BYTES) * width * height +
+            (long) Long.BYTES * openCells.length;
+        this.labelBytes = (long) Integer.BYTES * width * height;
+        // distance fields may not take up more than a quarter of the memory
+        this.distanceFields = new PathCache<>(capacity(fieldBytes));
+        this.numBytes = getBaseBytes();
+    }
+
+    /**
+     * Get the shared topology of a template, adding it from a game freshly created from
+     * the template if no other game has added it yet
+     *
+     * @param templateHash hash of the dungeon template the game was created from
+     * @param collisionClass collision class of the grid
+     * @param grid passability grid, as created from the template
+     * @param costs cost of moving onto each cell, as created from the template
+     *
+     * @return shared topology, or null if it differs from the one already added or is too
+     *         large to be shared
+     */
+    public static final SharedTopology publish(
+        String templateHash,
+        Class<?> collisionClass,
+        PassabilityGrid grid,
+        int[] costs
+    ) {
+        String key = keyOf(templateHash, collisionClass, grid);
+        synchronized (topologies) {
+            SharedTopology topology = topologies.get(key);
+            if (topology != null) {
+                // a different topology of the same template is not shared, and not replaced
+                return topology.matches(collisionClass, grid, costs) ? topology : null;
+            }
+            SharedTopology added = new SharedTopology(collisionClass, grid, costs);
+            if (added.numBytes > MAX_BYTES) return null;
+            topologies.put(key, added);
+            trim(added);
+            return added;
+        }
+    }
+
+    /**
+     * Get the shared topology of a template, if it has been added and matches the current
+     * state of a passability grid
+     *
+     * @param templateHash hash of the dungeon template the game was created from
+     * @param collisionClass collision class of the grid
+     * @param grid passability grid
+     * @param costs cost of moving onto each cell
+     *
+     * @return shared topology, or null if there is none matching the grid
+     */
+    public static final SharedTopology find(
+        String templateHash,
+        Class<?> collisionClass,
+        PassabilityGrid grid,
+        int[] costs
+    ) {
+        String key = keyOf(templateHash, collisionClass, grid);
+        synchronized (topologies) {
+            SharedTopology topology = topologies.get(key);
+            if (topology == null || !topology.matches(collisionClass, grid, costs)) return null;
+            return topology;
+        }
+    }
+
+    /**
+     * Get the key of the topology of a template
+     *
+     * @param templateHash hash of the dungeon template
+     * @param collisionClass collision class of the grid
+     * @param grid passability grid
+     *
+     * @return key of the topology
+     */
+    private static final String keyOf(
+        String templateHash,
+        Class<?> collisionClass,
+        PassabilityGrid grid
+    ) {
+        return (
+            templateHash +
+            "/" +
+            collisionClass.getName() +
+            "/" +
+            grid.getWidth() +
+            "x" +
+            grid.getHeight()
+        );
+    }
+
+    /**
+     * Drops the least recently used topologies, other than the one most recently grown,
+     * until every topology fits in the memory allowed
+     *
+     * @param grown topology which was added or had a result added
+     */
+    private static final void trim(SharedTopology grown) {
+        synchronized (topologies) {
+            long totalBytes = 0;
+            for (SharedTopology topology : topologies.values()) totalBytes += topology.numBytes;
+            Iterator<SharedTopology> eldest = topologies.values().iterator();
+            while (totalBytes > MAX_BYTES && eldest.hasNext()) {
+                SharedTopology topology = eldest.next();
+                if (topology == grown) continue;
+                totalBytes -= topology.numBytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Get the most results of a given size to keep, so they take up at most a quarter of
+     * the memory allowed
+     *
+     * @param resultBytes memory taken up by each result
+     *
+     * @return number of results, which is 0 if results of the size are not kept
+     */
+    private static final int capacity(long resultBytes) {
+        return (int) Math.min(MAX_RESULTS, MAX_BYTES / 4 / Math.max(1, resultBytes));
+    }
+
+    /**
+     * Checks whether a passability grid has this topology
+     *
+     * @param otherClass collision class of the grid
+     * @param grid passability grid
+     * @param otherCosts cost of moving onto each cell
+     *
+     * @return true if passability and costs are identical, false otherwise
+     */
+    private final boolean matches(Class<?> otherClass, PassabilityGrid grid, int[] otherCosts) {
+        return (
+            collisionClass == otherClass &&
+            width == grid.getWidth() &&
+            height == grid.getHeight() &&
+            grid.hasOpenCells(openCells) &&
+            Arrays.equals(costs, otherCosts)
+        );
+    }
+
+    /**
+     * Get the distance field to a cell, finding it if no game has shared it yet
+     *
+     * @param cell index of the target cell
+     * @param find finds the field if it is not shared yet
+     *
+     * @return shared distance field
+     */
+    public final DistanceField getDistanceField(int cell, Supplier<DistanceField> find) {
+        DistanceField field;
+        synchronized (this) {
+            field = distanceFields.get(collisionClass, cell);
+            if (field != null) return field;
+            // a field only searches once it is asked about a cell, so starting it is quick
+            field = find.get();
+            distanceFields.put(collisionClass, cell, field);
+            numBytes = countBytes();
+        }
+        // the topology lock is released first, so no thread waits on both locks at once
+        trim(this);
+        return field;
+    }
+
+    /**
+     * Get the connected regions, labelling them if no game has shared them yet
+     *
+     * @param find labels the regions if they are not shared yet
+     *
+     * @return shared labels
+     */
+    public final ConnectedComponents getConnectedComponents(Supplier<ConnectedComponents> find) {
+        synchronized (this) {
+            if (connectedComponents != null) return connectedComponents;
+            connectedComponents = find.get();
+            numBytes = countBytes();
+        }
+        trim(this);
+        return connectedComponents;
+    }
+
+    /**
+     * Get the all-pairs distance table, building it if no game has shared it yet
+     *
+     * @param find builds the table if it is not shared yet
+     *
+     * @return shared table, or null if it could not be built
+     */
+    public final DistanceTable getDistanceTable(Supplier<DistanceTable> find) {
+        synchronized (this) {
+            if (distanceTableBuilt) return distanceTable;
+            distanceTable = find.get();
+            distanceTableBuilt = true;
+            numBytes = countBytes();
+        }
+        trim(this);
+        return distanceTable;
+    }
+
+    /**
+     * Get the memory taken up by the passability and costs the topology was added with
+     *
+     * @return number of bytes
+     */
+    private final long getBaseBytes() {
+        return (long) Long.BYTES * openCells.length + (long) Integer.BYTES * costs.length;
+    }
+
+    /**
+     * Counts the memory taken up by the topology and the results it keeps
+     *
+     * @return number of bytes
+     */
+    private final long countBytes() {
+        long bytes = getBaseBytes();
+        bytes += distanceFields.size() * fieldBytes;
+        if (connectedComponents != null) bytes += labelBytes;
+        if (distanceTable != null) bytes += distanceTable.getNumBytes();
+        return bytes;
+    }
+}
@@ -16,6 +16,7 @@ public abstract class Entity {
     private boolean interactable;
     private boolean passable;
     private String type;
+    private Game game;
 
     public Entity(String prefix, Position position) {
         this.type = prefix;
@@ -64,7 +65,17 @@ public abstract class Entity {
      * @param true if passable, false otherwise
      */
     public void setPassable(boolean passable) {
+        if (this.passable == passable) return;
         this.passable = passable;
+        if (game != null) game.updateEntityPassability(this);
+    }
+
+    /**
+     * Notifies the game containing the Entity (if any) that the state of the Entity has
+     * changed, other than its position or whether it is passable
+     */
+    protected void stateChanged() {
+        if (game != null) game.updateEntityState(this);
     }
 
     /**
@@ -97,12 +108,33 @@ public abstract class Entity {
     }
 
     /**
-     * Set the position of an Entity
+     * Set the position of an Entity. The game containing the Entity (if any) is
+     * notified so that its spatial index stays up to date.
      *
      * @param position
      */
     public void setPosition(Position position) {
+        Position previous = this.position;
         this.position = position;
+        if (game != null) game.updateEntityPosition(this, previous);
+    }
+
+    /**
+     * Get the game which currently contains the Entity
+     *
+     * @return Game object, or null if the Entity is not in a game
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * Set the game which currently contains the Entity
+     *
+     * @param game game containing the Entity, or null if removed
+     */
+    public void setGame(Game game) {
+        this.game = game;
     }
 
     /**
@@ -25,7 +25,7 @@ public class MidnightArmour extends DefenceEquipment implements Buildable {
     public boolean isBuildable(Game game, Inventory inventory) {
         // Midnight armour can only be built if there are no zombies currently in the dungeon
         return (
-            !(game.getEntities().stream().anyMatch(entity -> entity instanceof ZombieToast)) &&
+            !(game.getAllEnemies().stream().anyMatch(enemy -> enemy instanceof ZombieToast)) &&
             inventory.hasItemQuantity("armour", ARMOUR_NEEDED) &&
             inventory.hasItemQuantity("sun_stone", SUNSTONE_NEEDED)
         );
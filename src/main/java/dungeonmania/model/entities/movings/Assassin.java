@@ -29,7 +29,7 @@ public class Assassin extends BribableEnemy implements Boss {
         // Player must be within 2 cardinal tiles to the assassin and
         // have 1 treasure (gold) and TheOneRing in order to bribe the assassin
 
-        if (getDistanceToPlayer(game, player.getPosition()) > MAX_DISTANCE_TO_BRIBE) {
+        if (!isWithinDistanceOfPlayer(game, player.getPosition(), MAX_DISTANCE_TO_BRIBE)) {
             throw new InvalidActionException("You are too far away to bribe this assassin");
         }
 
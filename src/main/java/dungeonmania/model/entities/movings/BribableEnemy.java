@@ -4,8 +4,8 @@ import dungeonmania.exceptions.InvalidActionException;
 import dungeonmania.model.Game;
 import dungeonmania.model.entities.Entity;
 import dungeonmania.model.entities.Item;
+import dungeonmania.model.entities.movings.movement.AStarSearch;
 import dungeonmania.model.entities.movings.movement.FollowPlayerMovementState;
-import dungeonmania.model.entities.movings.movement.PositionGraph;
 import dungeonmania.model.entities.movings.movement.RandomMovementState;
 import dungeonmania.model.entities.movings.movement.RunMovementState;
 import dungeonmania.model.entities.movings.player.Player;
@@ -45,7 +45,9 @@ public abstract class BribableEnemy extends Enemy {
      * @param mindControlled
      */
     public void setMindControlled(boolean mindControlled) {
+        if (this.mindControlled == mindControlled) return;
         this.mindControlled = mindControlled;
+        this.stateChanged();
     }
 
     /**
@@ -63,7 +65,9 @@ public abstract class BribableEnemy extends Enemy {
      * @param bribed
      */
     public void setBribed(boolean bribed) {
+        if (this.bribed == bribed) return;
         this.bribed = bribed;
+        this.stateChanged();
     }
 
     /**
@@ -100,7 +104,7 @@ public abstract class BribableEnemy extends Enemy {
 
         player.addAlly(this);
         this.mindControlTicks = 10;
-        this.mindControlled = true;
+        this.setMindControlled(true);
         return true;
     }
 
@@ -114,7 +118,7 @@ public abstract class BribableEnemy extends Enemy {
         if (
             this.isAlive() &&
             moveTwice &&
-            getDistanceToPlayer(game, player.getPosition()) <= BATTLE_RADIUS
+            isWithinDistanceOfPlayer(game, player.getPosition(), BATTLE_RADIUS)
         ) {
             moveTwice = false;
             this.move(game);
@@ -125,7 +129,7 @@ public abstract class BribableEnemy extends Enemy {
         if (mindControlled) {
             mindControlTicks--;
             if (mindControlTicks == 0) {
-                mindControlled = false;
+                this.setMindControlled(false);
                 player.removeAlly(this);
             }
         }
@@ -163,14 +167,18 @@ public abstract class BribableEnemy extends Enemy {
     }
 
     /**
-     * Find the (shortest) distance between the player and the BribableEnemy
+     * Checks whether the (shortest) distance between the player and the BribableEnemy is
+     * at most a given distance, without searching any further than that distance
      * @param game
      * @param playerPos
-     * @return int
+     * @param maxDistance
+     * @return boolean
      */
-    public int getDistanceToPlayer(Game game, Position playerPos) {
-        PositionGraph positionGraph = new PositionGraph(game, this);
-        return positionGraph.bfs(this.getPosition(), playerPos);
+    public boolean isWithinDistanceOfPlayer(Game game, Position playerPos, int maxDistance) {
+        return (
+            AStarSearch.distanceWithin(game, this, this.getPosition(), playerPos, maxDistance) <=
+            maxDistance
+        );
     }
 
     @Override
@@ -37,7 +37,7 @@ public class Mercenary extends BribableEnemy {
         // Player must be within 2 cardinal tiles to the mercenary and
         // have 1 treasure (gold) in order to bribe the mercenary
         if (
-            getDistanceToPlayer(game, player.getPosition()) > MAX_DISTANCE_TO_BRIBE
+            !isWithinDistanceOfPlayer(game, player.getPosition(), MAX_DISTANCE_TO_BRIBE)
         ) throw new InvalidActionException("You are too far away to bribe this mercenary");
 
         Item sunstone = player.findInventoryItem("sun_stone");
@@ -65,7 +65,7 @@ public class Mercenary extends BribableEnemy {
 
         // Do not spawn if the player is currently at its spawn location
         Position position = game.getPlayerSpawnLocation();
-        if (game.getPlayer().getPosition() == position) return;
+        if (game.getPlayer().getPosition().equals(position)) return;
 
         int tick = game.getTick();
         if (tick != 0 && tick % MERCENARY_TICK_RATE == 0) {
@@ -40,7 +40,7 @@ public abstract class MovingEntity extends Entity implements Tickable {
      * Moving entity loses all of its health
      */
     public void kill() {
-        this.health = 0;
+        this.setHealth(0);
     }
 
     /**
@@ -76,7 +76,9 @@ public abstract class MovingEntity extends Entity implements Tickable {
      * @param health
      */
     public void setHealth(int health) {
+        if (this.health == health) return;
         this.health = health;
+        this.stateChanged();
     }
 
     /**
@@ -108,10 +108,9 @@ public class Spider extends Enemy {
      * @return number of spiders
      */
     public static int getNumSpiderInGame(Game game) {
-        List<Entity> entities = game.getEntities();
         int spiders = 0;
-        for (Entity e : entities) {
-            if (e.getType().equals("spider")) spiders++;
+        for (Enemy e : game.getAllEnemies()) {
+            if (e instanceof Spider) spiders++;
         }
 
         return spiders;
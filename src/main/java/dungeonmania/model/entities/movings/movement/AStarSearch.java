@@ -0,0 +1,220 @@
+package dungeonmania.model.entities.movings.movement;
+
+import dungeonmania.model.Game;
+import dungeonmania.model.PassabilityGrid;
+import dungeonmania.model.entities.movings.MovingEntity;
+import dungeonmania.util.Position;
+import java.util.Arrays;
+
+/**
+ * A* search for the cost of the shortest path between two cells, following the collision
+ * rules of a MovingEntity. The heuristic is the Manhattan distance scaled by the cheapest
+ * cell to move onto, so it never overestimates and each cell is expanded at most once.
+ * When every cell costs the same to move onto, the search is done by Jump Point Search,
+ * and in small dungeons with a distance table, the cost is read from the table instead.
+ *
+ * A search follows the dungeon as it changes, and reuses its buffers from one query to
+ * the next, so it should be kept for as long as the passability grid it searches.
+ */
+public class AStarSearch {
+
+    private Game game;
+    private MovingEntity entity;
+    private PassabilityGrid grid;
+    private boolean useSwampCosts;
+    private int[] costs = null; // movement costs the minimum cost was found for
+    private int minCost = 1;
+    private boolean uniform = true; // true if every cell costs minCost to move onto
+    private JumpPointSearch jumpPointSearch;
+    private int numExpanded = 0;
+    // Buffers reused between searches, where a cell is only valid if stamped by the latest
+    private int[] dist = null;
+    private int[] reachedAt = null;
+    private int[] expandedAt = null;
+    private int stamp = 0;
+    // among cells of equal estimate, the latest found tends to be nearest to dest
+    private final CellQueue queue = new CellQueue(64, true);
+
+    /**
+     * Prepares searches over the passability grid of a MovingEntity.
+     *
+     * @param game game state
+     * @param entity MovingEntity whose collision rules paths follow
+     * @param useSwampCosts true if moving onto a swamp tile costs its movement factor, false
+     * if every move costs 1
+     */
+    public AStarSearch(Game game, MovingEntity entity, boolean useSwampCosts) {
+        this.game = game;
+        this.entity = entity;
+        this.grid = game.getPassabilityGrid(entity);
+        this.useSwampCosts = useSwampCosts;
+        this.jumpPointSearch = new JumpPointSearch(grid);
+    }
+
+    /**
+     * Get the number of cells expanded by the latest search.
+     *
+     * @return int number of cells expanded
+     */
+    public int getNumExpanded() {
+        return numExpanded;
+    }
+
+    /**
+     * Finds the cost of the shortest path from src to dest.
+     *
+     * @param src Position
+     * @param dest Position
+     * @return int cost of the shortest path, or Integer.MAX_VALUE if there is no path
+     */
+    public int findPathCost(Position src, Position dest) {
+        return findPathCost(src, dest, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the shortest path length from src to dest if it is at most maxDepth, using
+     * the search the game keeps for the collision rules of the entity. The search never
+     * follows a path estimated to be longer than maxDepth, so it stays within maxDepth of
+     * src.
+     *
+     * @param game game state
+     * @param entity MovingEntity whose collision rules the path follows
+     * @param src Position
+     * @param dest Position
+     * @param maxDepth maximum path length to search
+     * @return int shortest path length from src to dest, or Integer.MAX_VALUE if it is
+     * longer than maxDepth
+     */
+    public static int distanceWithin(
+        Game game,
+        MovingEntity entity,
+        Position src,
+        Position dest,
+        int maxDepth
+    ) {
+        if (src.equals(dest)) return 0;
+        if (maxDepth <= 0 || Position.manhattanDistance(src, dest) > maxDepth) {
+            return Integer.MAX_VALUE;
+        }
+        return game.getPathSearch(entity).findPathCost(src, dest, maxDepth);
+    }
+
+    /**
+     * Finds the cost of the shortest path from src to dest, without following any path
+     * which would cost more than maxCost.
+     *
+     * @param src Position
+     * @param dest Position
+     * @param maxCost largest path cost to search for
+     * @return int cost of the shortest path, or Integer.MAX_VALUE if there is no path which
+     * costs at most maxCost
+     */
+    public int findPathCost(Position src, Position dest, int maxCost) {
+        numExpanded = 0;
+        // a target outside the region reachable from src would exhaust the search
+        if (!game.isReachable(entity, src, dest)) return Integer.MAX_VALUE;
+        DistanceTable table = game.getDistanceTable(entity);
+        if (table != null && (useSwampCosts || table.isUniform())) {
+            return withinCost(table.getDistance(src, dest), maxCost);
+        }
+        if (useSwampCosts) refreshCosts();
+        if (uniform) {
+            int pathCost = jumpPointSearch.findPathCost(src, dest, minCost, maxCost);
+            numExpanded = jumpPointSearch.getNumExpanded();
+            return pathCost;
+        }
+
+        if (src.equals(dest)) return 0;
+        int source = grid.indexOf(src.getX(), src.getY());
+        int target = grid.indexOf(dest.getX(), dest.getY());
+        if (source == -1 || target == -1) return Integer.MAX_VALUE;
+
+        startSearch();
+        dist[source] = 0;
+        reachedAt[source] = stamp;
+        queue.add(source, heuristic(source, dest));
+
+        while (!queue.isEmpty()) {
+            int vertex = queue.poll();
+            if (expandedAt[vertex] == stamp) continue;
+            if (vertex == target) return dist[vertex];
+            expandedAt[vertex] = stamp;
+            numExpanded++;
+
+            int x = grid.getX(vertex);
+            int y = grid.getY(vertex);
+            for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+                int nx = x + PassabilityGrid.DX[d];
+                int ny = y + PassabilityGrid.DY[d];
+                if (grid.isBlocked(nx, ny)) continue;
+                int currNode = grid.indexOf(nx, ny);
+                if (expandedAt[currNode] == stamp) continue;
+                int cost = dist[vertex] + costs[currNode];
+                if (reachedAt[currNode] == stamp && cost >= dist[currNode]) continue;
+                // the heuristic never decreases by more than a move costs, so no path
+                // through a cell estimated over maxCost comes in under it
+                int estimate = cost + heuristic(currNode, dest);
+                if (estimate > maxCost) continue;
+                dist[currNode] = cost;
+                reachedAt[currNode] = stamp;
+                queue.add(currNode, estimate);
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Picks up the movement costs of the current topology, finding the cheapest cell to
+     * move onto and whether every cell costs the same, if they have changed.
+     */
+    private void refreshCosts() {
+        int[] movementCosts = game.getMovementCosts();
+        if (movementCosts == costs) return;
+        costs = movementCosts;
+        minCost = Arrays.stream(costs).min().orElse(1);
+        // swamp tiles anywhere may lie on the shortest path, so costs must be uniform everywhere
+        uniform = Arrays.stream(costs).allMatch(cost -> cost == minCost);
+    }
+
+    /**
+     * Starts a new search, so that every cell stamped by an earlier search is unreached.
+     */
+    private void startSearch() {
+        if (dist == null) {
+            int numCells = grid.getWidth() * grid.getHeight();
+            dist = new int[numCells];
+            reachedAt = new int[numCells];
+            expandedAt = new int[numCells];
+        }
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(reachedAt, 0);
+            Arrays.fill(expandedAt, 0);
+            stamp = 1;
+        }
+        queue.clear();
+    }
+
+    /**
+     * Get the cost of a path, if it costs at most a given amount.
+     *
+     * @param pathCost cost of the path
+     * @param maxCost largest cost allowed
+     * @return int cost of the path, or Integer.MAX_VALUE if it costs more than maxCost
+     */
+    private static int withinCost(int pathCost, int maxCost) {
+        return (pathCost <= maxCost) ? pathCost : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Estimates the cost from a cell to the destination, without overestimating.
+     *
+     * @param cell index of the cell
+     * @param dest Position of the destination
+     * @return int lower bound on the cost of the path
+     */
+    private int heuristic(int cell, Position dest) {
+        int dx = Math.abs(grid.getX(cell) - dest.getX());
+        int dy = Math.abs(grid.getY(cell) - dest.getY());
+        return (dx + dy) * minCost;
+    }
+}
@@ -0,0 +1,110 @@
+package dungeonmania.model.entities.movings.movement;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of cell indices ordered by priority. By default, cells of equal
+ * priority come out in the order they were added, so searches break ties the same way a
+ * breadth first search does.
+ */
+public class CellQueue {
+
+    private long[] keys; // priority in the high 32 bits, order added in the low 32 bits
+    private int[] cells; // cell for each order added
+    private int size = 0;
+    private int added = 0;
+    private boolean lastInFirstOut;
+
+    public CellQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Creates a queue with a given capacity, which grows as needed.
+     *
+     * @param capacity initial capacity
+     * @param lastInFirstOut true if cells of equal priority come out in the reverse of
+     * the order they were added
+     */
+    public CellQueue(int capacity, boolean lastInFirstOut) {
+        this.keys = new long[Math.max(capacity, 1)];
+        this.cells = new int[Math.max(capacity, 1)];
+        this.lastInFirstOut = lastInFirstOut;
+    }
+
+    /**
+     * Checks whether there are no cells left in the queue.
+     *
+     * @return boolean true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every cell from the queue, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+        added = 0;
+    }
+
+    /**
+     * Adds a cell to the queue. A cell may be added more than once.
+     *
+     * @param cell index of the cell
+     * @param priority non-negative priority, where lower comes out first
+     */
+    public void add(int cell, int priority) {
+        if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+        if (added == cells.length) cells = Arrays.copyOf(cells, added * 2);
+        cells[added] = cell;
+        long order = (lastInFirstOut) ? Integer.MAX_VALUE - added : added;
+        long key = ((long) priority << 32) | order;
+        added++;
+
+        // sift up
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        keys[i] = key;
+    }
+
+    /**
+     * Get the lowest priority of any cell in the queue, without removing it.
+     *
+     * @return int lowest priority
+     */
+    public int peekPriority() {
+        return (int) (keys[0] >>> 32);
+    }
+
+    /**
+     * Removes the cell with the lowest priority from the queue.
+     *
+     * @return int index of the cell
+     */
+    public int poll() {
+        long top = keys[0];
+        long key = keys[--size];
+
+        // sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (key <= keys[child]) break;
+            keys[i] = keys[child];
+            i = child;
+        }
+        keys[i] = key;
+
+        int order = (int) top;
+        return cells[(lastInFirstOut) ? Integer.MAX_VALUE - order : order];
+    }
+}
@@ -0,0 +1,510 @@
+package dungeonmania.model.entities.movings.movement;
+
+import dungeonmania.model.Game;
+import dungeonmania.model.PassabilityGrid;
+import dungeonmania.model.entities.movings.MovingEntity;
+import dungeonmania.util.Position;
+import java.util.Arrays;
+
+/**
+ * Abstraction of a passability grid for hierarchical pathfinding in large dungeons. The
+ * grid is split into square clusters, and each maximal open stretch of the border between
+ * two clusters is crossed at one or two entrances. The cost of the shortest path within a
+ * cluster between each pair of its entrances is precomputed, so long paths are found over
+ * the entrances alone and then refined within the cluster they start in. Paths found this
+ * way are close to, but not always, the shortest.
+ *
+ * Clusters are marked dirty as the cells in them change, and only dirty clusters and the
+ * neighbours sharing a changed border with them are rebuilt before the next search.
+ */
+public class ClusterGraph {
+
+    public static final int CLUSTER_SIZE = 16;
+    // Dungeons with fewer cells are searched directly
+    public static final int MIN_CELLS = 128 * 128;
+    // Manhattan distance beyond which paths are found over the clusters
+    public static final int LONG_RANGE = 2 * CLUSTER_SIZE;
+    // Open stretches of border at least this long get an entrance at each end
+    private static final int WIDE_ENTRANCE = 6;
+    private static final int UNREACHABLE = DistanceField.UNREACHABLE;
+
+    private Game game;
+    private PassabilityGrid grid;
+    private int[] costs;
+    private int minCost = 1; // cheapest cell to move onto, for the heuristic
+    private int width;
+    private int height;
+    private int clustersX;
+    private int clustersY;
+    private int[][] rightBorders; // per cluster, entrance cells on its side of its right border
+    private int[][] bottomBorders; // per cluster, entrance cells on its side of its bottom border
+    private int[][] nodes; // per cluster, sorted cells of all of its entrances
+    private int[][] nodeCosts; // per cluster, path costs between each pair of its entrances
+    private int[] entranceBase; // per cluster, id of its first entrance
+    private int[] entranceCells = new int[0]; // cell of each entrance, by id
+    private int numEntrances = 0;
+    private boolean[] dirty;
+    private boolean anyDirty = true;
+    private int numRebuilt = 0;
+    // Buffers reused by every search
+    private final AbstractSearch search = new AbstractSearch();
+    private final int[] sourceDist = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] sourcePred = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] targetDist = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] nodeDist = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final boolean[] settled = new boolean[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final CellQueue clusterQueue = new CellQueue(CLUSTER_SIZE * CLUSTER_SIZE);
+
+    /**
+     * Creates a cluster graph over a passability grid, to be built before the first search.
+     *
+     * @param game game state, which provides the movement cost of each cell
+     * @param grid passability grid of the MovingEntities whose paths are searched
+     */
+    public ClusterGraph(Game game, PassabilityGrid grid) {
+        this.game = game;
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.clustersX = (width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clustersY = (height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        int numClusters = clustersX * clustersY;
+        this.rightBorders = new int[numClusters][];
+        this.bottomBorders = new int[numClusters][];
+        this.nodes = new int[numClusters][];
+        this.nodeCosts = new int[numClusters][];
+        this.entranceBase = new int[numClusters];
+        this.dirty = new boolean[numClusters];
+        Arrays.fill(dirty, true);
+    }
+
+    /**
+     * Marks the cluster containing a cell to be rebuilt before the next search.
+     *
+     * @param x x-coordinate of the cell
+     * @param y y-coordinate of the cell
+     */
+    public void markDirty(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return;
+        dirty[clusterOf(x, y)] = true;
+        anyDirty = true;
+    }
+
+    /**
+     * Get the number of clusters rebuilt before the latest search.
+     *
+     * @return int number of clusters rebuilt
+     */
+    public int getNumRebuilt() {
+        return numRebuilt;
+    }
+
+    /**
+     * Finds the next Position on a path to a target, found over the entrances of the
+     * clusters and refined within the cluster of the entity.
+     *
+     * @param entity MovingEntity to be moved
+     * @param targetPosition Position of the target
+     * @return Position to go to next, or the current Position of the entity if it is
+     * already at the target or cannot reach it
+     */
+    public Position findNextPosition(MovingEntity entity, Position targetPosition) {
+        refresh();
+        Position position = entity.getPosition();
+        int source = grid.indexOf(position.getX(), position.getY());
+        int target = grid.indexOf(targetPosition.getX(), targetPosition.getY());
+        if (source == -1 || target == -1 || source == target) return position;
+        if (grid.isBlocked(targetPosition.getX(), targetPosition.getY())) return position;
+
+        int sourceCluster = clusterOf(source);
+        int targetCluster = clusterOf(target);
+        int[] fromSource = searchCluster(sourceCluster, source, false, sourceDist, sourcePred);
+        int[] toTarget = searchCluster(targetCluster, target, true, targetDist, null);
+
+        search.start(target);
+        int[] sourceNodes = nodes[sourceCluster];
+        for (int i = 0; i < sourceNodes.length; i++) {
+            int cost = fromSource[localIndexOf(sourceCluster, sourceNodes[i])];
+            search.relax(entranceBase[sourceCluster] + i, cost, search.sourceId);
+        }
+        if (sourceCluster == targetCluster) {
+            int cost = fromSource[localIndexOf(sourceCluster, target)];
+            search.relax(search.targetId, cost, search.sourceId);
+        }
+
+        while (!search.queue.isEmpty()) {
+            int vertex = search.queue.poll();
+            if (vertex == search.targetId) break;
+            if (search.expandedAt[vertex] == search.stamp) continue;
+            search.expandedAt[vertex] = search.stamp;
+            int cost = search.dist[vertex];
+
+            // entrances of the same cluster
+            int cell = entranceCells[vertex];
+            int cluster = clusterOf(cell);
+            int base = entranceBase[cluster];
+            int numNodes = nodes[cluster].length;
+            int i = vertex - base;
+            for (int j = 0; j < numNodes; j++) {
+                int edge = nodeCosts[cluster][i * numNodes + j];
+                if (j == i || edge == UNREACHABLE) continue;
+                search.relax(base + j, cost + edge, vertex);
+            }
+            // entrances across a border
+            int x = grid.getX(cell);
+            int y = grid.getY(cell);
+            for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+                int nx = x + PassabilityGrid.DX[d];
+                int ny = y + PassabilityGrid.DY[d];
+                if (grid.isBlocked(nx, ny)) continue;
+                int neighbour = grid.indexOf(nx, ny);
+                int neighbourCluster = clusterOf(neighbour);
+                if (neighbourCluster == cluster) continue;
+                int j = Arrays.binarySearch(nodes[neighbourCluster], neighbour);
+                if (j < 0) continue;
+                search.relax(entranceBase[neighbourCluster] + j, cost + costs[neighbour], vertex);
+            }
+            // the target, from entrances of its cluster
+            if (cluster == targetCluster) {
+                int edge = toTarget[localIndexOf(cluster, cell)];
+                if (edge != UNREACHABLE) search.relax(search.targetId, cost + edge, vertex);
+            }
+        }
+        if (search.reachedAt[search.targetId] != search.stamp) return position;
+
+        // the first cell after the source on the abstract path
+        int next = target;
+        for (int v = search.parent[search.targetId]; v != search.sourceId; v = search.parent[v]) {
+            if (entranceCells[v] != source) next = entranceCells[v];
+        }
+        if (clusterOf(next) != sourceCluster) {
+            return Position.of(grid.getX(next), grid.getY(next));
+        }
+
+        // refine the path to it within the cluster of the source
+        int sourceLocal = localIndexOf(sourceCluster, source);
+        int step = localIndexOf(sourceCluster, next);
+        while (sourcePred[step] != sourceLocal) step = sourcePred[step];
+        return positionOfLocal(sourceCluster, step);
+    }
+
+    /**
+     * State of an A* search over the entrances of the clusters, towards a target cell.
+     * Vertices are entrances by id, and the state of a vertex is only valid if stamped by
+     * the latest search.
+     */
+    private class AbstractSearch {
+
+        // the source and target are given the ids after those of the entrances
+        private int sourceId;
+        private int targetId;
+        private int target;
+        private int[] dist = new int[0];
+        private int[] parent = new int[0];
+        private int[] reachedAt = new int[0];
+        private int[] expandedAt = new int[0];
+        private int stamp = 0;
+        private final CellQueue queue = new CellQueue(64, true);
+
+        /**
+         * Starts a new search, so that every vertex stamped by an earlier search is
+         * unreached.
+         *
+         * @param target index of the target cell
+         */
+        private void start(int target) {
+            this.target = target;
+            this.sourceId = numEntrances;
+            this.targetId = numEntrances + 1;
+            if (dist.length < numEntrances + 2) {
+                dist = new int[numEntrances + 2];
+                parent = new int[numEntrances + 2];
+                reachedAt = new int[numEntrances + 2];
+                expandedAt = new int[numEntrances + 2];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(reachedAt, 0);
+                Arrays.fill(expandedAt, 0);
+                stamp = 1;
+            }
+            queue.clear();
+        }
+
+        /**
+         * Lowers the cost of the path found to a vertex, if cheaper.
+         *
+         * @param vertex id of an entrance, or the id of the target
+         * @param cost cost of the path to the vertex
+         * @param from vertex the path arrives from
+         */
+        private void relax(int vertex, int cost, int from) {
+            if (cost == UNREACHABLE || expandedAt[vertex] == stamp) return;
+            if (reachedAt[vertex] == stamp && dist[vertex] <= cost) return;
+            dist[vertex] = cost;
+            parent[vertex] = from;
+            reachedAt[vertex] = stamp;
+            int cell = (vertex == targetId) ? target : entranceCells[vertex];
+            int dx = Math.abs(grid.getX(cell) - grid.getX(target));
+            int dy = Math.abs(grid.getY(cell) - grid.getY(target));
+            queue.add(vertex, cost + (dx + dy) * minCost);
+        }
+    }
+
+    /**
+     * Rebuilds the entrances and entrance path costs of every dirty cluster, and of any
+     * cluster whose border with a dirty cluster has changed.
+     */
+    private void refresh() {
+        numRebuilt = 0;
+        if (!anyDirty) return;
+        costs = game.getMovementCosts();
+        minCost = Arrays.stream(costs).min().orElse(1);
+        boolean[] stale = Arrays.copyOf(dirty, dirty.length);
+        for (int cluster = 0; cluster < dirty.length; cluster++) {
+            if (!dirty[cluster]) continue;
+            int cx = cluster % clustersX;
+            int cy = cluster / clustersX;
+            if (cx + 1 < clustersX && rebuildRightBorder(cluster)) stale[cluster + 1] = true;
+            if (cx > 0 && rebuildRightBorder(cluster - 1)) stale[cluster - 1] = true;
+            if (cy + 1 < clustersY && rebuildBottomBorder(cluster)) {
+                stale[cluster + clustersX] = true;
+            }
+            if (cy > 0 && rebuildBottomBorder(cluster - clustersX)) {
+                stale[cluster - clustersX] = true;
+            }
+        }
+        for (int cluster = 0; cluster < stale.length; cluster++) {
+            if (stale[cluster]) rebuildCluster(cluster);
+        }
+        numberEntrances();
+        Arrays.fill(dirty, false);
+        anyDirty = false;
+    }
+
+    /**
+     * Finds the entrances across the border between a cluster and the one to its right.
+     *
+     * @param cluster index of the cluster
+     * @return boolean true if the entrances changed, false otherwise
+     */
+    private boolean rebuildRightBorder(int cluster) {
+        int x = (cluster % clustersX + 1) * CLUSTER_SIZE - 1;
+        int top = (cluster / clustersX) * CLUSTER_SIZE;
+        int length = Math.min(CLUSTER_SIZE, height - top);
+        int[] entrances = new int[length];
+        int numEntrances = 0;
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && !grid.isBlocked(x, top + i) &&
+                !grid.isBlocked(x + 1, top + i);
+            if (open && start == -1) start = i;
+            if (open || start == -1) continue;
+            for (int entrance : entrancesOf(start, i - 1)) {
+                entrances[numEntrances++] = grid.indexOf(x, top + entrance);
+            }
+            start = -1;
+        }
+        int[] border = Arrays.copyOf(entrances, numEntrances);
+        boolean changed = !Arrays.equals(border, rightBorders[cluster]);
+        rightBorders[cluster] = border;
+        return changed;
+    }
+
+    /**
+     * Finds the entrances across the border between a cluster and the one below it.
+     *
+     * @param cluster index of the cluster
+     * @return boolean true if the entrances changed, false otherwise
+     */
+    private boolean rebuildBottomBorder(int cluster) {
+        int y = (cluster / clustersX + 1) * CLUSTER_SIZE - 1;
+        int left = (cluster % clustersX) * CLUSTER_SIZE;
+        int length = Math.min(CLUSTER_SIZE, width - left);
+        int[] entrances = new int[length];
+        int numEntrances = 0;
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && !grid.isBlocked(left + i, y) &&
+                !grid.isBlocked(left + i, y + 1);
+            if (open && start == -1) start = i;
+            if (open || start == -1) continue;
+            for (int entrance : entrancesOf(start, i - 1)) {
+                entrances[numEntrances++] = grid.indexOf(left + entrance, y);
+            }
+            start = -1;
+        }
+        int[] border = Arrays.copyOf(entrances, numEntrances);
+        boolean changed = !Arrays.equals(border, bottomBorders[cluster]);
+        bottomBorders[cluster] = border;
+        return changed;
+    }
+
+    /**
+     * Chooses where to place the entrances of an open stretch of border.
+     *
+     * @param first offset of the first open cell along the border
+     * @param last offset of the last open cell along the border
+     * @return int[] offsets of the entrances
+     */
+    private static int[] entrancesOf(int first, int last) {
+        if (last - first + 1 >= WIDE_ENTRANCE) return new int[] { first, last };
+        return new int[] { (first + last) / 2 };
+    }
+
+    /**
+     * Collects the entrances of a cluster from its four borders, and finds the cost of
+     * the shortest path within the cluster between each pair of them.
+     *
+     * @param cluster index of the cluster
+     */
+    private void rebuildCluster(int cluster) {
+        numRebuilt++;
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int[] clusterNodes = new int[0];
+        clusterNodes = concat(clusterNodes, rightBorders[cluster], 0);
+        clusterNodes = concat(clusterNodes, bottomBorders[cluster], 0);
+        if (cx > 0) clusterNodes = concat(clusterNodes, rightBorders[cluster - 1], 1);
+        if (cy > 0) clusterNodes = concat(clusterNodes, bottomBorders[cluster - clustersX], width);
+        clusterNodes = Arrays.stream(clusterNodes).sorted().distinct().toArray();
+
+        int k = clusterNodes.length;
+        int[] pathCosts = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            int[] fromNode = searchCluster(cluster, clusterNodes[i], false, nodeDist, null);
+            for (int j = 0; j < k; j++) {
+                pathCosts[i * k + j] = fromNode[localIndexOf(cluster, clusterNodes[j])];
+            }
+        }
+        nodes[cluster] = clusterNodes;
+        nodeCosts[cluster] = pathCosts;
+    }
+
+    /**
+     * Gives every entrance an id, numbering the entrances of each cluster in turn.
+     */
+    private void numberEntrances() {
+        numEntrances = 0;
+        for (int cluster = 0; cluster < nodes.length; cluster++) {
+            entranceBase[cluster] = numEntrances;
+            numEntrances += nodes[cluster].length;
+        }
+        if (entranceCells.length < numEntrances) entranceCells = new int[numEntrances];
+        for (int cluster = 0; cluster < nodes.length; cluster++) {
+            int[] clusterNodes = nodes[cluster];
+            for (int i = 0; i < clusterNodes.length; i++) {
+                entranceCells[entranceBase[cluster] + i] = clusterNodes[i];
+            }
+        }
+    }
+
+    /**
+     * Appends the cells of a border, offset to the other side of it if needed.
+     *
+     * @param cells cells collected so far
+     * @param border entrance cells of the border (may be null if not built)
+     * @param offset difference in index from the border cells to the cells to append
+     * @return int[] combined cells
+     */
+    private static int[] concat(int[] cells, int[] border, int offset) {
+        if (border == null) return cells;
+        int[] combined = Arrays.copyOf(cells, cells.length + border.length);
+        for (int i = 0; i < border.length; i++) combined[cells.length + i] = border[i] + offset;
+        return combined;
+    }
+
+    /**
+     * Finds the cost of the shortest path within a cluster between a cell and every other
+     * cell of the cluster.
+     *
+     * @param cluster index of the cluster
+     * @param cell index of the cell to search from
+     * @param reverse true for paths leading to the cell, false for paths leading from it
+     * @param dist filled with the cost of each path, by local index
+     * @param pred filled with the previous cell on each path, by local index (may be null)
+     * @return int[] cost of each path, by local index within the cluster
+     */
+    private int[] searchCluster(int cluster, int cell, boolean reverse, int[] dist, int[] pred) {
+        int left = (cluster % clustersX) * CLUSTER_SIZE;
+        int top = (cluster / clustersX) * CLUSTER_SIZE;
+        int right = Math.min(left + CLUSTER_SIZE, width);
+        int bottom = Math.min(top + CLUSTER_SIZE, height);
+        Arrays.fill(dist, UNREACHABLE);
+        Arrays.fill(settled, false);
+        CellQueue queue = clusterQueue;
+        queue.clear();
+
+        int start = localIndexOf(cluster, cell);
+        dist[start] = 0;
+        queue.add(start, 0);
+        while (!queue.isEmpty()) {
+            int vertex = queue.poll();
+            if (settled[vertex]) continue;
+            settled[vertex] = true;
+            int x = left + vertex % CLUSTER_SIZE;
+            int y = top + vertex / CLUSTER_SIZE;
+            for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+                int nx = x + PassabilityGrid.DX[d];
+                int ny = y + PassabilityGrid.DY[d];
+                if (nx < left || nx >= right || ny < top || ny >= bottom) continue;
+                if (grid.isBlocked(nx, ny)) continue;
+                int neighbour = (ny - top) * CLUSTER_SIZE + (nx - left);
+                int moveCost = costs[grid.indexOf(reverse ? x : nx, reverse ? y : ny)];
+                int cost = dist[vertex] + moveCost;
+                if (settled[neighbour] || cost >= dist[neighbour]) continue;
+                dist[neighbour] = cost;
+                if (pred != null) pred[neighbour] = vertex;
+                queue.add(neighbour, cost);
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Get the cluster containing a cell.
+     *
+     * @param x x-coordinate of the cell
+     * @param y y-coordinate of the cell
+     * @return int index of the cluster
+     */
+    private int clusterOf(int x, int y) {
+        return (y / CLUSTER_SIZE) * clustersX + x / CLUSTER_SIZE;
+    }
+
+    /**
+     * Get the cluster containing a cell.
+     *
+     * @param cell index of the cell
+     * @return int index of the cluster
+     */
+    private int clusterOf(int cell) {
+        return clusterOf(grid.getX(cell), grid.getY(cell));
+    }
+
+    /**
+     * Get the index of a cell within its cluster.
+     *
+     * @param cluster index of the cluster
+     * @param cell index of the cell
+     * @return int local index of the cell
+     */
+    private int localIndexOf(int cluster, int cell) {
+        int x = grid.getX(cell) - (cluster % clustersX) * CLUSTER_SIZE;
+        int y = grid.getY(cell) - (cluster / clustersX) * CLUSTER_SIZE;
+        return y * CLUSTER_SIZE + x;
+    }
+
+    /**
+     * Get the Position of a cell from its index within its cluster.
+     *
+     * @param cluster index of the cluster
+     * @param local local index of the cell
+     * @return Position of the cell
+     */
+    private Position positionOfLocal(int cluster, int local) {
+        int x = (cluster % clustersX) * CLUSTER_SIZE + local % CLUSTER_SIZE;
+        int y = (cluster / clustersX) * CLUSTER_SIZE + local / CLUSTER_SIZE;
+        return Position.of(x, y);
+    }
+}
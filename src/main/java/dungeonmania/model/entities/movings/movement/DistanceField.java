@@ -0,0 +1,210 @@
+package dungeonmania.model.entities.movings.movement;
+
+import dungeonmania.model.Game;
+import dungeonmania.model.PassabilityGrid;
+import dungeonmania.model.entities.movings.MovingEntity;
+import dungeonmania.util.Position;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cost of the shortest path from every cell to a target cell, for MovingEntities sharing
+ * a passability grid. Moving onto a cell costs the movement factor of any swamp tile on
+ * it, so the cost from a cell is the cost of its best neighbour plus the distance of
+ * that neighbour. The field only searches as far out from the target as the cells it is
+ * asked about, resuming the search when a cell further out is asked about, so enemies
+ * near the player never pay for the whole dungeon. It searches a copy of the passability
+ * grid as it was when the field was created, so it may be shared between games with the
+ * same topology, and read from several threads at once.
+ */
+public class DistanceField {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private int width;
+    private int height;
+    private int wordsPerRow;
+    private int target;
+    private int[] costs;
+    private long[] openCells; // bitboard of unblocked cells, as in the passability grid
+    private int[] dist;
+    private CellQueue queue; // cells left to search from, or null once every cell is found
+    private int numSettled = 0;
+
+    /**
+     * Starts a search for the distance to a target from every cell, outwards from the
+     * target along the reverse of each possible move.
+     *
+     * @param game game state
+     * @param entity any MovingEntity with the collision rules of the field
+     * @param targetPosition Position of the target
+     */
+    public DistanceField(Game game, MovingEntity entity, Position targetPosition) {
+        PassabilityGrid grid = game.getPassabilityGrid(entity);
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.wordsPerRow = grid.getWordsPerRow();
+        this.target = grid.indexOf(targetPosition.getX(), targetPosition.getY());
+        this.costs = game.getMovementCosts();
+        this.openCells = grid.copyOpenCells();
+        this.dist = new int[costs.length];
+        Arrays.fill(dist, UNREACHABLE);
+
+        // a target which cannot be moved onto cannot be reached from anywhere
+        if (target == -1 || !isOpen(targetPosition.getX(), targetPosition.getY())) return;
+        queue = new CellQueue(64);
+        dist[target] = 0;
+        queue.add(target, 0);
+    }
+
+    /**
+     * Get the number of cells the search has found the final distance of by searching
+     * from them, which grows as cells further from the target are asked about.
+     *
+     * @return int number of cells searched from
+     */
+    public synchronized int getNumSettled() {
+        return numSettled;
+    }
+
+    /**
+     * Checks whether the field was found for a given target.
+     *
+     * @param targetPosition Position of the target
+     * @return boolean true if the field leads to the target, false otherwise
+     */
+    public boolean hasTarget(Position targetPosition) {
+        return target != -1 && target == indexOf(targetPosition.getX(), targetPosition.getY());
+    }
+
+    /**
+     * Get the cost of the shortest path from a Position to the target.
+     *
+     * @param position Position to start from
+     * @return int cost of the path, or UNREACHABLE if there is no path
+     */
+    public int getDistance(Position position) {
+        int index = indexOf(position.getX(), position.getY());
+        return (index == -1) ? UNREACHABLE : distanceOf(index);
+    }
+
+    /**
+     * Finds the next Position on a shortest path to the target, preferring neighbours in
+     * the order given by Game.getMoveablePositions.
+     *
+     * @param game game state
+     * @param entity MovingEntity to be moved
+     * @return Position to go to next, or the current Position of the entity if it is
+     * already at the target or cannot reach it
+     */
+    public Position findNextPosition(Game game, MovingEntity entity) {
+        Position position = entity.getPosition();
+        if (target == -1 || indexOf(position.getX(), position.getY()) == target) {
+            return position;
+        }
+
+        Position optimalPathPosition = position;
+        long optimalPathCost = UNREACHABLE;
+        List<Position> possiblePositionsToMove = game.getMoveablePositions(entity, position);
+        for (Position next : possiblePositionsToMove) {
+            int index = indexOf(next.getX(), next.getY());
+            int distance = distanceOf(index);
+            if (distance == UNREACHABLE) continue;
+            long pathCost = (long) costs[index] + distance;
+            if (pathCost < optimalPathCost) {
+                optimalPathCost = pathCost;
+                optimalPathPosition = next;
+            }
+        }
+        return optimalPathPosition;
+    }
+
+    /**
+     * Finds the neighbour furthest from the target, preferring neighbours in the order
+     * given by Game.getMoveablePositions. A neighbour with no path to the target counts
+     * as a distance of 0.
+     *
+     * @param game game state
+     * @param entity MovingEntity to be moved
+     * @return Position to go to next, or the current Position of the entity if it cannot
+     * move
+     */
+    public Position findFleePosition(Game game, MovingEntity entity) {
+        Position position = entity.getPosition();
+        Position optimalPathPosition = position;
+        int optimalPathLength = Integer.MIN_VALUE;
+        List<Position> possiblePositionsToMove = game.getMoveablePositions(entity, position);
+        for (Position next : possiblePositionsToMove) {
+            int pathLength = distanceOf(indexOf(next.getX(), next.getY()));
+            if (pathLength == UNREACHABLE) pathLength = 0;
+            if (pathLength > optimalPathLength) {
+                optimalPathLength = pathLength;
+                optimalPathPosition = next;
+            }
+        }
+        return optimalPathPosition;
+    }
+
+    /**
+     * Get the final distance of a cell, searching further out from the target until no
+     * cell left to search from could lead to a shorter path from it.
+     *
+     * @param cell index of the cell
+     * @return int cost of the path, or UNREACHABLE if there is no path
+     */
+    private synchronized int distanceOf(int cell) {
+        while (queue != null && queue.peekPriority() < dist[cell]) {
+            searchFromNext();
+        }
+        return dist[cell];
+    }
+
+    /**
+     * Searches from the nearest cell left to search from, dropping the queue once it is
+     * empty.
+     */
+    private void searchFromNext() {
+        int priority = queue.peekPriority();
+        int vertex = queue.poll();
+        // skip stale entries for cells which were queued again at a lower cost
+        if (priority == dist[vertex]) {
+            numSettled++;
+            // any neighbour can move onto vertex, as vertex is not blocked
+            int cost = dist[vertex] + costs[vertex];
+            int x = vertex % width;
+            int y = vertex / width;
+            for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+                int nx = x + PassabilityGrid.DX[d];
+                int ny = y + PassabilityGrid.DY[d];
+                int neighbour = indexOf(nx, ny);
+                if (neighbour == -1 || cost >= dist[neighbour]) continue;
+                dist[neighbour] = cost;
+                // blocked cells can only be the start of a path, so are not searched from
+                if (isOpen(nx, ny)) queue.add(neighbour, cost);
+            }
+        }
+        if (queue.isEmpty()) queue = null;
+    }
+
+    /**
+     * Checks whether a cell was unblocked when the search started
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return boolean true if the cell is unblocked, false otherwise
+     */
+    private boolean isOpen(int x, int y) {
+        return (openCells[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Get the index of the cell at a given coordinate
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return int index of the cell, or -1 if it is outside of the dungeon
+     */
+    private int indexOf(int x, int y) {
+        return (x < 0 || x >= width || y < 0 || y >= height) ? -1 : y * width + x;
+    }
+}
@@ -0,0 +1,274 @@
+package dungeonmania.model.entities.movings.movement;
+
+import dungeonmania.model.Game;
+import dungeonmania.model.PassabilityGrid;
+import dungeonmania.model.entities.movings.MovingEntity;
+import dungeonmania.util.Position;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cost of the shortest path between every pair of unblocked cells of a small dungeon, for
+ * MovingEntities sharing a passability grid. Costs are those of DistanceField, and are
+ * stored as unsigned 16 bit values in a table indexed by the unblocked cells only.
+ *
+ * A table only depends on the passability and movement costs it was built for, and is
+ * never modified once built, so it may be shared between games with the same topology.
+ */
+public class DistanceTable {
+
+    public static final int UNREACHABLE = DistanceField.UNREACHABLE;
+    // Largest table to build, and the most unblocked cells a table that size can cover
+    private static final long MAX_TABLE_BYTES = 256 * 1024;
+    public static final int MAX_NODES = (int) Math.sqrt(MAX_TABLE_BYTES / Short.BYTES);
+
+    // Largest cost which can be stored, as 0xFFFF marks a pair of cells with no path
+    private static final int MAX_COST = 0xFFFE;
+    private static final int NO_PATH = 0xFFFF;
+
+    private final int width;
+    private final int height;
+    private final int[] costs;
+    private final boolean uniform; // true if every cell costs 1 to move onto
+    private final int[] nodes; // index into the table of each cell, or -1 if blocked
+    private final int numNodes;
+    private final short[] table; // cost from node i to node j at i * numNodes + j
+
+    /**
+     * Finds the cost of the shortest path from every unblocked cell to every other.
+     *
+     * @param grid passability grid of the MovingEntities using the table
+     * @param costs cost of moving onto each cell
+     * @param numNodes number of unblocked cells
+     */
+    private DistanceTable(PassabilityGrid grid, int[] costs, int numNodes) {
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.costs = costs;
+        this.uniform = Arrays.stream(costs).allMatch(cost -> cost == 1);
+        this.nodes = new int[width * height];
+        this.numNodes = numNodes;
+        this.table = new short[numNodes * numNodes];
+
+        int node = 0;
+        for (int cell = 0; cell < nodes.length; cell++) {
+            nodes[cell] = grid.isBlocked(cell % width, cell / width) ? -1 : node++;
+        }
+    }
+
+    /**
+     * Builds the table for the current state of a passability grid.
+     *
+     * @param grid passability grid of the MovingEntities using the table
+     * @param costs cost of moving onto each cell
+     * @return distance table, or null if the grid has more than MAX_NODES unblocked cells
+     * or a path costs too much to be stored
+     */
+    public static DistanceTable build(PassabilityGrid grid, int[] costs) {
+        int numNodes = grid.getNumOpenCells();
+        if ((long) numNodes * numNodes * Short.BYTES > MAX_TABLE_BYTES) return null;
+        DistanceTable table = new DistanceTable(grid, costs, numNodes);
+        return table.fill() ? table : null;
+    }
+
+    /**
+     * Searches outwards from every unblocked cell in turn, breadth first if every move
+     * costs the same.
+     *
+     * @return boolean true if every cost fits in the table, false otherwise
+     */
+    private boolean fill() {
+        Arrays.fill(table, (short) NO_PATH);
+        int[] cells = new int[numNodes];
+        for (int cell = 0; cell < nodes.length; cell++) {
+            if (nodes[cell] != -1) cells[nodes[cell]] = cell;
+        }
+
+        int[] dist = new int[nodes.length];
+        int[] queue = new int[numNodes];
+        boolean[] settled = new boolean[nodes.length];
+        for (int source = 0; source < numNodes; source++) {
+            Arrays.fill(dist, UNREACHABLE);
+            dist[cells[source]] = 0;
+            int row = source * numNodes;
+            if (uniform) {
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = cells[source];
+                while (head < tail) {
+                    int vertex = queue[head++];
+                    if (dist[vertex] > MAX_COST) return false;
+                    table[row + nodes[vertex]] = (short) dist[vertex];
+                    for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+                        int neighbour = moveTo(vertex, d);
+                        if (neighbour == -1 || dist[neighbour] != UNREACHABLE) continue;
+                        dist[neighbour] = dist[vertex] + 1;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            } else {
+                Arrays.fill(settled, false);
+                CellQueue cellQueue = new CellQueue(numNodes);
+                cellQueue.add(cells[source], 0);
+                while (!cellQueue.isEmpty()) {
+                    int vertex = cellQueue.poll();
+                    if (settled[vertex]) continue;
+                    settled[vertex] = true;
+                    if (dist[vertex] > MAX_COST) return false;
+                    table[row + nodes[vertex]] = (short) dist[vertex];
+                    for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+                        int neighbour = moveTo(vertex, d);
+                        if (neighbour == -1 || settled[neighbour]) continue;
+                        int cost = dist[vertex] + costs[neighbour];
+                        if (cost < dist[neighbour]) {
+                            dist[neighbour] = cost;
+                            cellQueue.add(neighbour, cost);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the unblocked cell next to a cell in a given direction
+     *
+     * @param cell index of the cell
+     * @param d direction, as an index into PassabilityGrid.DX and PassabilityGrid.DY
+     * @return int index of the neighbour, or -1 if it is blocked or outside of the dungeon
+     */
+    private int moveTo(int cell, int d) {
+        int x = cell % width + PassabilityGrid.DX[d];
+        int y = cell / width + PassabilityGrid.DY[d];
+        if (x < 0 || x >= width || y < 0 || y >= height) return -1;
+        int neighbour = y * width + x;
+        return (nodes[neighbour] == -1) ? -1 : neighbour;
+    }
+
+    /**
+     * Checks whether every cell costs 1 to move onto, so costs are numbers of moves.
+     *
+     * @return boolean true if costs are uniform, false otherwise
+     */
+    public boolean isUniform() {
+        return uniform;
+    }
+
+    /**
+     * Get the memory taken up by the table and its index of cells.
+     *
+     * @return long number of bytes
+     */
+    public long getNumBytes() {
+        return (long) Short.BYTES * table.length + (long) Integer.BYTES * nodes.length;
+    }
+
+    /**
+     * Get the cost of the shortest path between two Positions. A blocked cell may be moved
+     * out of, but not onto.
+     *
+     * @param src Position to start from
+     * @param dest Position to reach
+     * @return int cost of the path, or UNREACHABLE if there is no path
+     */
+    public int getDistance(Position src, Position dest) {
+        return getDistance(indexOf(src.getX(), src.getY()), indexOf(dest.getX(), dest.getY()));
+    }
+
+    /**
+     * Get the cost of the shortest path between two cells.
+     *
+     * @param source index of the cell to start from
+     * @param target index of the cell to reach
+     * @return int cost of the path, or UNREACHABLE if there is no path
+     */
+    private int getDistance(int source, int target) {
+        if (source == -1 || target == -1) return UNREACHABLE;
+        if (source == target) return 0;
+        if (nodes[target] == -1) return UNREACHABLE;
+        if (nodes[source] != -1) {
+            int cost = table[nodes[source] * numNodes + nodes[target]] & 0xFFFF;
+            return (cost == NO_PATH) ? UNREACHABLE : cost;
+        }
+
+        // a blocked cell leads through whichever of its neighbours is best
+        int best = UNREACHABLE;
+        for (int d = 0; d < PassabilityGrid.DX.length; d++) {
+            int neighbour = moveTo(source, d);
+            if (neighbour == -1) continue;
+            int cost = getDistance(neighbour, target);
+            if (cost != UNREACHABLE) best = Math.min(best, costs[neighbour] + cost);
+        }
+        return best;
+    }
+
+    /**
+     * Finds the next Position on a shortest path to a target, choosing the same Position
+     * as a DistanceField to the target would.
+     *
+     * @param game game state
+     * @param entity MovingEntity to be moved
+     * @param targetPosition Position of the target
+     * @return Position to go to next, or the current Position of the entity if it is
+     * already at the target or cannot reach it
+     */
+    public Position findNextPosition(Game game, MovingEntity entity, Position targetPosition) {
+        Position position = entity.getPosition();
+        int target = indexOf(targetPosition.getX(), targetPosition.getY());
+        if (target == -1 || indexOf(position.getX(), position.getY()) == target) return position;
+
+        Position optimalPathPosition = position;
+        long optimalPathCost = UNREACHABLE;
+        List<Position> possiblePositionsToMove = game.getMoveablePositions(entity, position);
+        for (Position next : possiblePositionsToMove) {
+            int index = indexOf(next.getX(), next.getY());
+            int dist = getDistance(index, target);
+            if (dist == UNREACHABLE) continue;
+            long pathCost = (long) costs[index] + dist;
+            if (pathCost < optimalPathCost) {
+                optimalPathCost = pathCost;
+                optimalPathPosition = next;
+            }
+        }
+        return optimalPathPosition;
+    }
+
+    /**
+     * Finds the neighbour furthest from a target, choosing the same Position as a
+     * DistanceField to the target would.
+     *
+     * @param game game state
+     * @param entity MovingEntity to be moved
+     * @param targetPosition Position of the target
+     * @return Position to go to next, or the current Position of the entity if it cannot
+     * move
+     */
+    public Position findFleePosition(Game game, MovingEntity entity, Position targetPosition) {
+        Position position = entity.getPosition();
+        int target = indexOf(targetPosition.getX(), targetPosition.getY());
+        Position optimalPathPosition = position;
+        int optimalPathLength = Integer.MIN_VALUE;
+        List<Position> possiblePositionsToMove = game.getMoveablePositions(entity, position);
+        for (Position next : possiblePositionsToMove) {
+            int pathLength = getDistance(indexOf(next.getX(), next.getY()), target);
+            if (pathLength == UNREACHABLE) pathLength = 0;
+            if (pathLength > optimalPathLength) {
+                optimalPathLength = pathLength;
+                optimalPathPosition = next;
+            }
+        }
+        return optimalPathPosition;
+    }
+
+    /**
+     * Get the index of the cell at a given coordinate
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return int index of the cell, or -1 if it is outside of the dungeon
+     */
+    private int indexOf(int x, int y) {
+        return (x < 0 || x >= width || y < 0 || y >= height) ? -1 : y * width + x;
+    }
+}
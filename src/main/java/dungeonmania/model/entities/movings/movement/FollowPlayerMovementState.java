@@ -4,7 +4,6 @@ import dungeonmania.model.Game;
 import dungeonmania.model.entities.movings.Enemy;
 import dungeonmania.model.entities.movings.player.Player;
 import dungeonmania.util.Position;
-import java.util.Map;
 
 public class FollowPlayerMovementState extends MovementState {
 
@@ -13,35 +12,59 @@ public class FollowPlayerMovementState extends MovementState {
     }
 
     /**
-     * Uses the Dijkstra's path finding algorithm to find the shortest path to the
-     * player.
+     * Follows the shortest path to the player, read from the distance table of small
+     * dungeons, or from the distance field to the player shared by every enemy with the
+     * same collision rules. In large dungeons, a player far away is followed along a path
+     * found over the clusters of the dungeon instead. A player who cannot be reached is not
+     * searched for.
      *
      * @param game dungeon
      * @return Position to go to next
      */
     @Override
     public Position findNextPosition(Game game) {
-        Player player = (Player) game.getPlayer();
-
-        Position optimalPathPosition = this.getEnemy().getPosition();
-
-        PositionGraph positionGraph = new PositionGraph(game, this.getEnemy());
+        Enemy enemy = this.getEnemy();
+        Player player = game.getPlayer();
+        // a player sealed off from the enemy would exhaust any search, so the enemy idles
+        if (player == null || !game.isReachable(enemy, enemy.getPosition(), player.getPosition())) {
+            return enemy.getPosition();
+        }
+        DistanceTable table = game.getDistanceTable(enemy);
+        if (table != null) return table.findNextPosition(game, enemy, player.getPosition());
+        if (isLongRange(game, player)) {
+            return game.getClusterGraph(enemy).findNextPosition(enemy, player.getPosition());
+        }
 
-        // Move the mercenary to the closest possible position to the player
-        Map<Integer, Position> prev = positionGraph.dijkstra(this.getEnemy().getPosition());
+        return game.getPlayerDistanceField(enemy).findNextPosition(game, enemy);
+    }
 
-        // traverse back path
-        Position pos = prev.get(player.getPosition().hashCode());
-        if (pos != null && pos.equals(optimalPathPosition)) {
-            optimalPathPosition = player.getPosition();
-        } else {
-            Position curr = prev.get(player.getPosition().hashCode());
-            while (curr != null && !this.getEnemy().getPosition().equals(curr)) {
-                optimalPathPosition = curr;
-                curr = prev.get(curr.hashCode());
-            }
-        }
+    /**
+     * Distance tables and fields may be read from several threads at once, so the next
+     * position can be decided ahead unless it is found over the cluster graph, which is
+     * rebuilt as it is searched.
+     *
+     * @param game dungeon
+     * @return boolean true if the next position can be decided ahead, false otherwise
+     */
+    @Override
+    public boolean canDecideAhead(Game game) {
+        return !isLongRange(game, game.getPlayer());
+    }
 
-        return optimalPathPosition;
+    /**
+     * Checks whether the player is far enough away in a large dungeon to be followed over
+     * the clusters of the dungeon.
+     *
+     * @param game dungeon
+     * @param player player to follow
+     * @return boolean true if the cluster graph is used, false otherwise
+     */
+    private boolean isLongRange(Game game, Player player) {
+        return (
+            player != null &&
+            game.getWidth() * game.getHeight() >= ClusterGraph.MIN_CELLS &&
+            Position.manhattanDistance(this.getEnemy().getPosition(), player.getPosition()) >
+            ClusterGraph.LONG_RANGE
+        );
     }
 }
@@ -0,0 +1,219 @@
+package dungeonmania.model.entities.movings.movement;
+
+import dungeonmania.model.PassabilityGrid;
+import dungeonmania.util.Position;
+import java.util.Arrays;
+
+/**
+ * Jump Point Search for the cost of the shortest path between two cells, where every move
+ * costs the same. Of the many equally short paths across an open area, only those which
+ * make their vertical moves before their horizontal moves are followed, so the search
+ * jumps along straight lines and only expands the cells where such a path must turn.
+ * A cell is expanded once for each direction it is arrived from.
+ *
+ * A search reuses its buffers from one query to the next, so it should be kept for as long
+ * as the passability grid it searches.
+ */
+public class JumpPointSearch {
+
+    // Directions, as indices into PassabilityGrid.DX and PassabilityGrid.DY
+    private static final int DOWN = 0;
+    private static final int LEFT = 1;
+    private static final int RIGHT = 2;
+    private static final int UP = 3;
+    private static final int NUM_DIRECTIONS = 4;
+
+    private PassabilityGrid grid;
+    private int stepCost;
+    private int maxCost;
+    private int target;
+    private int numExpanded = 0;
+    // Buffers reused between searches, where a state is only valid if stamped by the latest
+    private int[] dist = null;
+    private int[] reachedAt = null;
+    private int[] expandedAt = null;
+    private int stamp = 0;
+    private final CellQueue queue = new CellQueue(64, true);
+
+    /**
+     * Prepares searches over a passability grid.
+     *
+     * @param grid passability grid of the MovingEntity whose paths are searched
+     */
+    public JumpPointSearch(PassabilityGrid grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Get the number of cells expanded by the latest search.
+     *
+     * @return int number of cells expanded
+     */
+    public int getNumExpanded() {
+        return numExpanded;
+    }
+
+    /**
+     * Finds the cost of the shortest path from src to dest, without following any path
+     * which would cost more than maxCost.
+     *
+     * @param src Position
+     * @param dest Position
+     * @param stepCost cost of every move
+     * @param maxCost largest path cost to search for
+     * @return int cost of the shortest path, or Integer.MAX_VALUE if there is no path which
+     * costs at most maxCost
+     */
+    public int findPathCost(Position src, Position dest, int stepCost, int maxCost) {
+        numExpanded = 0;
+        if (src.equals(dest)) return 0;
+
+        int source = grid.indexOf(src.getX(), src.getY());
+        target = grid.indexOf(dest.getX(), dest.getY());
+        if (source == -1 || target == -1 || grid.isBlocked(dest.getX(), dest.getY())) {
+            return Integer.MAX_VALUE;
+        }
+        this.stepCost = stepCost;
+        this.maxCost = maxCost;
+        startSearch();
+
+        // the source is arrived from no direction, so paths may leave it in any direction
+        numExpanded++;
+        for (int d = 0; d < NUM_DIRECTIONS; d++) {
+            jumpFrom(source, d, 0);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (expandedAt[state] == stamp) continue;
+            int cell = state / NUM_DIRECTIONS;
+            int arrived = state % NUM_DIRECTIONS;
+            if (cell == target) return dist[state];
+            expandedAt[state] = stamp;
+            numExpanded++;
+
+            int x = grid.getX(cell);
+            int y = grid.getY(cell);
+            jumpFrom(cell, arrived, dist[state]);
+            if (isVertical(arrived)) {
+                jumpFrom(cell, LEFT, dist[state]);
+                jumpFrom(cell, RIGHT, dist[state]);
+            } else {
+                if (isForced(x, y, arrived, DOWN)) jumpFrom(cell, DOWN, dist[state]);
+                if (isForced(x, y, arrived, UP)) jumpFrom(cell, UP, dist[state]);
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Starts a new search, so that every state stamped by an earlier search is unreached.
+     * States are cells paired with the direction they were arrived from.
+     */
+    private void startSearch() {
+        if (dist == null) {
+            int numStates = grid.getWidth() * grid.getHeight() * NUM_DIRECTIONS;
+            dist = new int[numStates];
+            reachedAt = new int[numStates];
+            expandedAt = new int[numStates];
+        }
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(reachedAt, 0);
+            Arrays.fill(expandedAt, 0);
+            stamp = 1;
+        }
+        queue.clear();
+    }
+
+    /**
+     * Jumps from a cell in a direction, and queues the jump point found, if any.
+     *
+     * @param cell index of the cell to jump from
+     * @param d direction to jump in
+     * @param cost cost of the path to the cell
+     */
+    private void jumpFrom(int cell, int d, int cost) {
+        int x = grid.getX(cell);
+        int y = grid.getY(cell);
+        int jumpPoint = jump(x, y, d, cost);
+        if (jumpPoint == -1) return;
+
+        int length = Math.abs(grid.getX(jumpPoint) - x) + Math.abs(grid.getY(jumpPoint) - y);
+        int jumpCost = cost + length * stepCost;
+        int state = jumpPoint * NUM_DIRECTIONS + d;
+        if (reachedAt[state] != stamp || jumpCost < dist[state]) {
+            dist[state] = jumpCost;
+            reachedAt[state] = stamp;
+            queue.add(state, jumpCost + heuristic(jumpPoint));
+        }
+    }
+
+    /**
+     * Moves from a cell in a direction until reaching a cell where a path may need to turn.
+     * Vertical jumps stop at any cell which a horizontal jump leads on from, and horizontal
+     * jumps stop at any cell with a forced neighbour. The heuristic never decreases by more
+     * than a move costs, so a jump stops short once its estimate exceeds the largest path
+     * cost searched for.
+     *
+     * @param x x-coordinate of the cell to jump from
+     * @param y y-coordinate of the cell to jump from
+     * @param d direction to jump in
+     * @param cost cost of the path to the cell
+     * @return int index of the jump point, or -1 if the jump is blocked or too costly first
+     */
+    private int jump(int x, int y, int d, int cost) {
+        int dx = PassabilityGrid.DX[d];
+        int dy = PassabilityGrid.DY[d];
+        while (true) {
+            x += dx;
+            y += dy;
+            cost += stepCost;
+            if (grid.isBlocked(x, y)) return -1;
+            int cell = grid.indexOf(x, y);
+            if (cost + heuristic(cell) > maxCost) return -1;
+            if (cell == target) return cell;
+            if (isVertical(d)) {
+                if (jump(x, y, LEFT, cost) != -1 || jump(x, y, RIGHT, cost) != -1) return cell;
+            } else if (isForced(x, y, d, DOWN) || isForced(x, y, d, UP)) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a vertical neighbour of a cell arrived at horizontally is forced, that
+     * is, it cannot be reached by moving vertically before the cell.
+     *
+     * @param x x-coordinate of the cell
+     * @param y y-coordinate of the cell
+     * @param arrived horizontal direction the cell was arrived from
+     * @param d vertical direction of the neighbour
+     * @return boolean true if the neighbour is forced, false otherwise
+     */
+    private boolean isForced(int x, int y, int arrived, int d) {
+        int ny = y + PassabilityGrid.DY[d];
+        return !grid.isBlocked(x, ny) && grid.isBlocked(x - PassabilityGrid.DX[arrived], ny);
+    }
+
+    /**
+     * Checks whether a direction is vertical.
+     *
+     * @param d direction
+     * @return boolean true if vertical, false if horizontal
+     */
+    private static boolean isVertical(int d) {
+        return d == DOWN || d == UP;
+    }
+
+    /**
+     * Estimates the cost from a cell to the target, without overestimating.
+     *
+     * @param cell index of the cell
+     * @return int lower bound on the cost of the path
+     */
+    private int heuristic(int cell) {
+        int dx = Math.abs(grid.getX(cell) - grid.getX(target));
+        int dy = Math.abs(grid.getY(cell) - grid.getY(target));
+        return (dx + dy) * stepCost;
+    }
+}
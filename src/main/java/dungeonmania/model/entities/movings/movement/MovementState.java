@@ -4,13 +4,21 @@ import dungeonmania.exceptions.InvalidActionException;
 import dungeonmania.model.Game;
 import dungeonmania.model.entities.Entity;
 import dungeonmania.model.entities.movings.Enemy;
+import dungeonmania.model.entities.movings.player.Player;
 import dungeonmania.util.Direction;
 import dungeonmania.util.Position;
 import java.util.List;
+import java.util.Objects;
 
 public abstract class MovementState {
 
     private Enemy enemy;
+    // next Position found by decide, and what it was found from
+    private Position decidedPosition = null;
+    private Position decidedFrom;
+    private Position decidedTarget;
+    private int decidedVersion;
+    private int decidedTick;
 
     public MovementState(Enemy enemy) {
         this.enemy = enemy;
@@ -31,12 +39,67 @@ public abstract class MovementState {
      * @param game
      */
     public void move(Game game) {
-        Position optimalPathPosition = this.findNextPosition(game);
+        Position optimalPathPosition = this.takeDecision(game);
+        if (optimalPathPosition == null) optimalPathPosition = this.findNextPosition(game);
         this.setEnemyDirection(optimalPathPosition);
         this.interact(game);
         this.updatePosition();
     }
 
+    /**
+     * Checks whether the next position can be found ahead of the move, on another thread.
+     * findNextPosition must then only read the game, and depend on nothing but the position
+     * of the enemy, the position of the player and the topology of the dungeon.
+     *
+     * @param game
+     * @return boolean true if the next position can be decided ahead, false otherwise
+     */
+    public boolean canDecideAhead(Game game) {
+        return false;
+    }
+
+    /**
+     * Finds the next position ahead of the move, to be used by the move if the enemy, the
+     * player and the topology of the dungeon are unchanged by then.
+     *
+     * @param game
+     */
+    public void decide(Game game) {
+        Player player = game.getPlayer();
+        try {
+            Position next = this.findNextPosition(game);
+            decidedFrom = enemy.getPosition();
+            decidedTarget = (player == null) ? null : player.getPosition();
+            decidedVersion = game.getTopologyVersion();
+            decidedTick = game.getTick();
+            decidedPosition = next;
+        } catch (RuntimeException e) {
+            // the move will find the position again, and fail in turn
+            decidedPosition = null;
+        }
+    }
+
+    /**
+     * Takes the position found by decide, if it is still the position findNextPosition
+     * would find.
+     *
+     * @param game
+     * @return next position, or null if there is no decision or it is out of date
+     */
+    private Position takeDecision(Game game) {
+        Position decision = decidedPosition;
+        decidedPosition = null;
+        if (decision == null) return null;
+        Player player = game.getPlayer();
+        Position target = (player == null) ? null : player.getPosition();
+        boolean valid =
+            decidedTick == game.getTick() &&
+            decidedVersion == game.getTopologyVersion() &&
+            decidedFrom.equals(enemy.getPosition()) &&
+            Objects.equals(decidedTarget, target);
+        return valid ? decision : null;
+    }
+
     /**
      * Given a new position, find and set the direction that the entity is going to.
      *
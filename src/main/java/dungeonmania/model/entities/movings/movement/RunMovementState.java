@@ -2,10 +2,7 @@ package dungeonmania.model.entities.movings.movement;
 
 import dungeonmania.model.Game;
 import dungeonmania.model.entities.movings.Enemy;
-import dungeonmania.model.entities.movings.player.Player;
 import dungeonmania.util.Position;
-import java.util.List;
-import java.util.Map;
 
 public class RunMovementState extends MovementState {
 
@@ -14,40 +11,22 @@ public class RunMovementState extends MovementState {
     }
 
     /**
-     * Find the best position to move to get away from the player.
+     * Find the best position to move to get away from the player, using the distance
+     * field to the player shared by every enemy with the same collision rules, or the
+     * distance table of a small dungeon.
      *
      * @param game
      * @return Position to move to next
      */
     @Override
     public Position findNextPosition(Game game) {
-        Player player = game.getPlayer();
-
-        List<Position> possiblePositionsToMove = game.getMoveablePositions(
-            this.getEnemy(),
-            this.getEnemy().getPosition()
-        );
-
-        int optimalPathLength = Integer.MIN_VALUE;
-        Position optimalPathPosition = this.getEnemy().getPosition();
-
-        PositionGraph positionGraph = new PositionGraph(game, this.getEnemy());
-        // Move the enemy to the furthest possible position to the player
-        for (Position position : possiblePositionsToMove) {
-            Map<Integer, Position> prev = positionGraph.dijkstra(position);
-            int pathLen = 0;
-            Position curr = prev.get(player.getPosition().hashCode());
-            while (curr != null && curr != player.getPosition()) {
-                curr = prev.get(curr.hashCode());
-                pathLen++;
-            }
-            // gets the longest shortest path
-
-            if (pathLen > optimalPathLength) {
-                optimalPathLength = pathLen;
-                optimalPathPosition = position;
-            }
+        DistanceTable table = game.getDistanceTable(this.getEnemy());
+        if (table != null && game.getPlayer() != null) {
+            return table.findFleePosition(game, this.getEnemy(), game.getPlayer().getPosition());
         }
-        return optimalPathPosition;
+        DistanceField field = game.getPlayerDistanceField(this.getEnemy());
+        if (field == null) return this.getEnemy().getPosition();
+        // Move the enemy to the furthest possible position to the player
+        return field.findFleePosition(game, this.getEnemy());
     }
 }
@@ -46,14 +46,7 @@ public class Portal extends Entity {
      * @return other Portal object
      */
     public Portal findPortal(Game game) {
-        return game
-            .getAllPortals()
-            .stream()
-            .filter(portal ->
-                portal.getColour().equals(this.colour) && portal.getId() != this.getId()
-            )
-            .findFirst()
-            .orElse(null);
+        return game.getCorrespondingPortal(this);
     }
 
     /**
@@ -33,14 +33,9 @@ public class ZombieToastSpawner extends Entity implements Tickable {
         Player player = (Player) character;
 
         // Check if the player is cardinally adjacent to the spawner
-        game
-            .getCardinallyAdjacentEntities(player.getPosition())
-            .stream()
-            .filter(e -> e.equals(this))
-            .findFirst()
-            .orElseThrow(() ->
-                new InvalidActionException("Player is not cardinally adjacent to the spawner")
-            );
+        if (!Position.isCardinallyAdjacent(player.getPosition(), this.getPosition())) {
+            throw new InvalidActionException("Player is not cardinally adjacent to the spawner");
+        }
 
         if (player.hasWeapon()) {
             Equipment weapon = player.getWeapon();
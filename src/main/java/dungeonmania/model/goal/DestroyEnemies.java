@@ -1,10 +1,8 @@
 package dungeonmania.model.goal;
 
 import dungeonmania.model.Game;
-import dungeonmania.model.entities.Entity;
 import dungeonmania.model.entities.movings.BribableEnemy;
 import dungeonmania.model.entities.movings.Enemy;
-import dungeonmania.model.entities.statics.ZombieToastSpawner;
 
 public class DestroyEnemies extends GoalLeaf {
 
@@ -14,23 +12,11 @@ public class DestroyEnemies extends GoalLeaf {
 
     @Override
     public int numRemaining(Game game) {
-        Entity character = game.getPlayer();
-        return (int) game
-            .getEntities()
-            .stream()
-            .filter(e ->
-                // Ignore character
-                (e != character) &&
-                (
-                    // ZombieToastSpawner counts
-                    e instanceof ZombieToastSpawner ||
-                    // Enemy which are enemies
-                    (
-                        e instanceof Enemy &&
-                        !(e instanceof BribableEnemy && ((BribableEnemy) e).isBribed())
-                    )
-                )
-            )
-            .count();
+        // ZombieToastSpawners count, as do enemies which are not allies
+        int remaining = game.getAllSpawners().size();
+        for (Enemy e : game.getAllEnemies()) {
+            if (!(e instanceof BribableEnemy && ((BribableEnemy) e).isBribed())) remaining++;
+        }
+        return remaining;
     }
 }
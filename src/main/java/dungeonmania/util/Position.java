@@ -2,10 +2,14 @@ package dungeonmania.util;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 public final class Position {
 
+    // Canonical instances for small coordinates, created on first use
+    private static final int CACHE_SIZE = 64;
+    private static final int CACHE_LAYERS = 32;
+    private static final Position[][] CACHE = new Position[CACHE_LAYERS][];
+
     private final int x, y, layer;
 
     public Position(int x, int y, int layer) {
@@ -20,9 +24,43 @@ public final class Position {
         this.layer = 0;
     }
 
+    /**
+     * Get a Position for the given coordinates, reusing a shared instance where possible
+     * @return Position at (x, y, layer)
+     */
+    public static final Position of(int x, int y, int layer) {
+        if (
+            x < 0 || x >= CACHE_SIZE || y < 0 || y >= CACHE_SIZE || layer < 0 || layer >= CACHE_LAYERS
+        ) return new Position(x, y, layer);
+
+        // Positions are immutable, so racing threads at worst create equal instances
+        Position[] cache = CACHE[layer];
+        if (cache == null) {
+            cache = new Position[CACHE_SIZE * CACHE_SIZE];
+            CACHE[layer] = cache;
+        }
+        int index = y * CACHE_SIZE + x;
+        Position position = cache[index];
+        if (position == null) {
+            position = new Position(x, y, layer);
+            cache[index] = position;
+        }
+        return position;
+    }
+
+    /**
+     * Get a Position for the given coordinates (at layer 0), reusing a shared instance
+     * where possible
+     * @return Position at (x, y)
+     */
+    public static final Position of(int x, int y) {
+        return of(x, y, 0);
+    }
+
     @Override
     public final int hashCode() {
-        return Objects.hash(x, y);
+        // same value as Objects.hash(x, y), without boxing
+        return 31 * (31 + x) + y;
     }
 
     @Override
@@ -49,11 +87,11 @@ public final class Position {
     }
 
     public final Position asLayer(int layer) {
-        return new Position(x, y, layer);
+        return (this.layer == layer) ? this : of(x, y, layer);
     }
 
     public final Position translateBy(int x, int y) {
-        return this.translateBy(new Position(x, y));
+        return of(this.x + x, this.y + y, this.layer);
     }
 
     public final Position translateBy(Direction direction) {
@@ -61,7 +99,7 @@ public final class Position {
     }
 
     public final Position translateBy(Position position) {
-        return new Position(this.x + position.x, this.y + position.y, this.layer + position.layer);
+        return of(this.x + position.x, this.y + position.y, this.layer + position.layer);
     }
 
     // (Note: doesn't include z)
@@ -72,7 +110,7 @@ public final class Position {
      * @return The relative position vector
      */
     public static final Position calculatePositionBetween(Position a, Position b) {
-        return new Position(b.x - a.x, b.y - a.y);
+        return of(b.x - a.x, b.y - a.y);
     }
 
     public static final boolean isAdjacent(Position a, Position b) {
@@ -82,9 +120,22 @@ public final class Position {
         return Math.abs(x) + Math.abs(y) == 1 || (Math.abs(x) == 1 && Math.abs(y) == 1);
     }
 
+    public static final boolean isCardinallyAdjacent(Position a, Position b) {
+        // check for strict adjacent (up, down, left, right) only
+        return manhattanDistance(a, b) == 1;
+    }
+
+    /**
+     * Calculates the number of cardinal steps between a and b, ignoring any obstacles
+     * @return Manhattan distance between a and b
+     */
+    public static final int manhattanDistance(Position a, Position b) {
+        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    }
+
     // (Note: doesn't include z)
     public final Position scale(int factor) {
-        return new Position(x * factor, y * factor, layer);
+        return of(x * factor, y * factor, layer);
     }
 
     @Override
@@ -98,14 +149,14 @@ public final class Position {
     // 6 5 4
     public List<Position> getAdjacentPositions() {
         List<Position> adjacentPositions = new ArrayList<>();
-        adjacentPositions.add(new Position(x - 1, y - 1));
-        adjacentPositions.add(new Position(x, y - 1));
-        adjacentPositions.add(new Position(x + 1, y - 1));
-        adjacentPositions.add(new Position(x + 1, y));
-        adjacentPositions.add(new Position(x + 1, y + 1));
-        adjacentPositions.add(new Position(x, y + 1));
-        adjacentPositions.add(new Position(x - 1, y + 1));
-        adjacentPositions.add(new Position(x - 1, y));
+        adjacentPositions.add(of(x - 1, y - 1));
+        adjacentPositions.add(of(x, y - 1));
+        adjacentPositions.add(of(x + 1, y - 1));
+        adjacentPositions.add(of(x + 1, y));
+        adjacentPositions.add(of(x + 1, y + 1));
+        adjacentPositions.add(of(x, y + 1));
+        adjacentPositions.add(of(x - 1, y + 1));
+        adjacentPositions.add(of(x - 1, y));
         return adjacentPositions;
     }
 }
@@ -2,21 +2,40 @@ package dungeonmania;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import dungeonmania.exceptions.InvalidActionException;
+import dungeonmania.model.ChangeJournal;
+import dungeonmania.model.ConnectedComponents;
 import dungeonmania.model.Game;
+import dungeonmania.model.PassabilityGrid;
 import dungeonmania.model.entities.Entity;
 import dungeonmania.model.entities.movings.Mercenary;
+import dungeonmania.model.entities.movings.Spider;
+import dungeonmania.model.entities.movings.ZombieToast;
+import dungeonmania.model.entities.movings.movement.DistanceField;
+import dungeonmania.model.entities.movings.movement.DistanceTable;
 import dungeonmania.model.entities.movings.player.Player;
+import dungeonmania.model.entities.statics.Boulder;
+import dungeonmania.model.entities.statics.Door;
+import dungeonmania.model.entities.statics.FloorSwitch;
+import dungeonmania.model.entities.statics.Portal;
+import dungeonmania.model.entities.statics.SwampTile;
+import dungeonmania.model.entities.statics.Wall;
+import dungeonmania.model.goal.ExitCondition;
 import dungeonmania.model.mode.Mode;
 import dungeonmania.model.mode.Standard;
 import dungeonmania.response.models.DungeonResponse;
 import dungeonmania.util.Direction;
 import dungeonmania.util.Position;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 
@@ -294,4 +313,566 @@ public class GameTest {
         // If we try to use bomb again, it does not exist in player's inventory
         assertThrows(InvalidActionException.class, () -> newGame.tick(bombId, Direction.NONE));
     }
+
+    /**
+     * This tests that entities at a position are kept up to date as entities are
+     * added, moved and removed
+     */
+    @Test
+    public void testEntitiesAtPosition() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        assertEquals(1, newGame.getEntities(new Position(0, 0)).size());
+        assertEquals(0, newGame.getEntities(new Position(2, 2)).size());
+
+        Player player = new Player(new Position(1, 2), mode.initialHealth());
+        Boulder boulder = new Boulder(new Position(2, 2, 3));
+        newGame.addEntity(player);
+        newGame.addEntity(boulder);
+        assertTrue(newGame.getEntities(new Position(2, 2)).contains(boulder));
+
+        // Player pushes the boulder to the right
+        newGame.tick(null, Direction.RIGHT);
+        assertEquals(List.of(player), newGame.getEntities(new Position(2, 2)));
+        assertEquals(List.of(boulder), newGame.getEntities(new Position(3, 2)));
+
+        // Entities moved directly are also tracked
+        boulder.setPosition(new Position(4, 4));
+        assertEquals(0, newGame.getEntities(new Position(3, 2)).size());
+        assertEquals(List.of(boulder), newGame.getEntities(new Position(4, 4)));
+
+        // Removed entities are no longer tracked
+        Wall wall = new Wall(new Position(4, 4));
+        newGame.addEntity(wall);
+        assertEquals(2, newGame.getEntities(new Position(4, 4)).size());
+        assertTrue(newGame.removeEntity(boulder));
+        assertEquals(List.of(wall), newGame.getEntities(new Position(4, 4)));
+        boulder.setPosition(new Position(5, 5));
+        assertEquals(0, newGame.getEntities(new Position(5, 5)).size());
+    }
+
+    /**
+     * This tests that entities can be looked up by id as they are added and removed
+     */
+    @Test
+    public void testEntityById() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        Player player = new Player(new Position(1, 1), mode.initialHealth());
+        Wall wall = new Wall(new Position(3, 3));
+        newGame.addEntity(player);
+        newGame.addEntity(wall);
+
+        assertEquals(wall, newGame.getEntity(wall.getId()));
+        assertTrue(newGame.hasEntity(player.getId()));
+
+        assertTrue(newGame.removeEntity(wall));
+        assertNull(newGame.getEntity(wall.getId()));
+        assertTrue(!newGame.removeEntity(wall));
+        assertThrows(IllegalArgumentException.class, () -> newGame.interact(wall.getId()));
+    }
+
+    /**
+     * This tests that the player and typed registries follow entities being added
+     * and removed
+     */
+    @Test
+    public void testEntityRegistries() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        assertNull(newGame.getPlayer());
+
+        Player player = new Player(new Position(1, 1), mode.initialHealth());
+        newGame.addEntity(player);
+        assertEquals(player, newGame.getPlayer());
+
+        Spider spider = new Spider(new Position(3, 3), mode.damageMultiplier(), player);
+        Portal portal = new Portal(new Position(4, 4), "BLUE");
+        SwampTile swampTile = new SwampTile(new Position(2, 4), 2);
+        newGame.addEntity(spider);
+        newGame.addEntity(portal);
+        newGame.addEntity(swampTile);
+        assertEquals(List.of(spider), newGame.getAllEnemies());
+        assertEquals(List.of(portal), newGame.getAllPortals());
+        assertEquals(List.of(swampTile), newGame.getAllSwampTiles());
+        assertEquals(1, Spider.getNumSpiderInGame(newGame));
+
+        newGame.removeEntity(spider);
+        newGame.removeEntity(portal);
+        newGame.removeEntity(player);
+        assertEquals(0, newGame.getAllEnemies().size());
+        assertEquals(0, newGame.getAllPortals().size());
+        assertNull(newGame.getPlayer());
+    }
+
+    /**
+     * Tests that the dungeon bounds follow the walls and widen as entities move
+     */
+    @Test
+    public void testDungeonBounds() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        assertEquals(7, newGame.getWidth());
+        assertEquals(7, newGame.getHeight());
+        assertTrue(newGame.isInBounds(6, 6));
+        assertFalse(newGame.isInBounds(7, 6));
+        assertFalse(newGame.isInBounds(-1, 0));
+
+        // bounds widen as entities move
+        Boulder boulder = new Boulder(new Position(3, 3));
+        newGame.addEntity(boulder);
+        boulder.setPosition(new Position(9, 3));
+        assertEquals(10, newGame.getWidth());
+        assertTrue(newGame.isInBounds(9, 6));
+
+        // an explicit size never shrinks the bounds
+        newGame.setDimensions(5, 12);
+        assertEquals(10, newGame.getWidth());
+        assertEquals(12, newGame.getHeight());
+        assertTrue(newGame.isInBounds(0, 11));
+    }
+
+    /**
+     * Tests the adjacent queries around a Position
+     */
+    @Test
+    public void testNeighbourhoodQueries() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        Position centre = new Position(3, 3);
+        Boulder centreBoulder = new Boulder(centre);
+        Boulder cardinalBoulder = new Boulder(new Position(3, 2));
+        Boulder diagonalBoulder = new Boulder(new Position(4, 4));
+        Boulder farBoulder = new Boulder(new Position(5, 4));
+        newGame.addEntity(centreBoulder);
+        newGame.addEntity(cardinalBoulder);
+        newGame.addEntity(diagonalBoulder);
+        newGame.addEntity(farBoulder);
+
+        assertEquals(List.of(cardinalBoulder), newGame.getCardinallyAdjacentEntities(centre));
+        assertEquals(2, newGame.getAdjacentEntities(centre).size());
+        assertTrue(newGame.getAdjacentEntities(centre).contains(diagonalBoulder));
+        assertFalse(newGame.getAdjacentEntities(centre).contains(centreBoulder));
+    }
+
+    /**
+     * Tests that passability grids are shared by collision class and follow changes
+     */
+    @Test
+    public void testPassabilityGrids() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        Player player = new Player(new Position(1, 1), mode.initialHealth());
+        Spider spider = new Spider(new Position(3, 3), mode.damageMultiplier(), player);
+        ZombieToast zombie = new ZombieToast(new Position(4, 4), mode.damageMultiplier(), player);
+        Door door = new Door(new Position(2, 2), 1);
+        Boulder boulder = new Boulder(new Position(3, 2));
+        newGame.addEntity(player);
+        newGame.addEntity(spider);
+        newGame.addEntity(zombie);
+        newGame.addEntity(door);
+        newGame.addEntity(boulder);
+
+        // movers with the same collision rules share a grid
+        PassabilityGrid playerGrid = newGame.getPassabilityGrid(player);
+        PassabilityGrid spiderGrid = newGame.getPassabilityGrid(spider);
+        PassabilityGrid zombieGrid = newGame.getPassabilityGrid(zombie);
+        Player otherPlayer = new Player(new Position(5, 5), mode.initialHealth());
+        assertEquals(playerGrid, newGame.getPassabilityGrid(otherPlayer));
+        assertNotEquals(playerGrid, zombieGrid);
+        assertTrue(zombieGrid.isBlocked(0, 0));
+        assertTrue(playerGrid.isBlocked(0, 0));
+        assertFalse(spiderGrid.isBlocked(0, 0));
+        assertTrue(playerGrid.isBlocked(2, 2));
+        assertFalse(spiderGrid.isBlocked(2, 2));
+        assertTrue(spiderGrid.isBlocked(3, 2));
+        assertTrue(playerGrid.isBlocked(-1, 3));
+
+        // grids are updated as the dungeon changes
+        door.unlockDoor();
+        assertFalse(playerGrid.isBlocked(2, 2));
+        boulder.setPosition(new Position(4, 2));
+        assertFalse(playerGrid.isBlocked(3, 2));
+        assertTrue(playerGrid.isBlocked(4, 2));
+        newGame.removeEntity(boulder);
+        assertFalse(spiderGrid.isBlocked(4, 2));
+        List<Position> moveablePositions = newGame.getMoveablePositions(player, new Position(1, 2));
+        assertEquals(
+            List.of(new Position(1, 3), new Position(2, 2), new Position(1, 1)),
+            moveablePositions
+        );
+    }
+
+    /**
+     * Tests that search results are reused until walls, doors or swamps change
+     */
+    @Test
+    public void testTopologyVersion() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        Player player = new Player(new Position(1, 1), mode.initialHealth());
+        Mercenary mercenary = new Mercenary(new Position(5, 5), mode.damageMultiplier(), player);
+        Door door = new Door(new Position(3, 1), 1);
+        newGame.addEntity(player);
+        newGame.addEntity(mercenary);
+        newGame.addEntity(door);
+
+        // search results are reused while the topology is unchanged
+        assertSame(
+            newGame.getConnectedComponents(mercenary),
+            newGame.getConnectedComponents(mercenary)
+        );
+        assertSame(
+            newGame.getPlayerDistanceField(mercenary),
+            newGame.getPlayerDistanceField(mercenary)
+        );
+        int[] costs = newGame.getMovementCosts();
+        assertSame(costs, newGame.getMovementCosts());
+
+        // moving entities do not change the topology
+        int version = newGame.getTopologyVersion();
+        mercenary.setPosition(new Position(5, 4));
+        player.setPosition(new Position(1, 2));
+        assertEquals(version, newGame.getTopologyVersion());
+        assertSame(costs, newGame.getMovementCosts());
+
+        // unlocking a door does, and results are recomputed
+        door.unlockDoor();
+        assertTrue(newGame.getTopologyVersion() > version);
+        assertNotSame(costs, newGame.getMovementCosts());
+        version = newGame.getTopologyVersion();
+
+        // as does adding a swamp tile
+        newGame.addEntity(new SwampTile(new Position(2, 2), 3));
+        assertTrue(newGame.getTopologyVersion() > version);
+        assertEquals(3, newGame.getMovementCosts()[2 * newGame.getWidth() + 2]);
+    }
+
+    /**
+     * Tests that connected regions are labelled and relabelled as doors open
+     */
+    @Test
+    public void testConnectedComponents() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        Player player = new Player(new Position(1, 1), mode.initialHealth());
+        Mercenary mercenary = new Mercenary(new Position(5, 5), mode.damageMultiplier(), player);
+        Door door = new Door(new Position(3, 3), 1);
+        newGame.addEntity(player);
+        newGame.addEntity(mercenary);
+        newGame.addEntity(door);
+        // seal the bottom right corner off behind a wall line and the door
+        for (int i = 1; i < 6; i++) {
+            if (i != 3) newGame.addEntity(new Wall(new Position(i, 3)));
+        }
+
+        ConnectedComponents components = newGame.getConnectedComponents(mercenary);
+        assertEquals(2, components.getNumComponents());
+        assertEquals(ConnectedComponents.BLOCKED, components.getLabel(3, 3));
+        assertNotEquals(components.getLabel(1, 1), components.getLabel(5, 5));
+        assertFalse(newGame.isReachable(mercenary, new Position(5, 5), new Position(1, 1)));
+        assertFalse(newGame.isReachable(mercenary, new Position(5, 5), new Position(3, 3)));
+        // a blocked cell can be moved out of, but not onto
+        assertTrue(newGame.isReachable(mercenary, new Position(3, 3), new Position(1, 1)));
+        assertSame(components, newGame.getConnectedComponents(mercenary));
+
+        // the sealed off mercenary idles rather than searching for the player
+        Position position = mercenary.getPosition();
+        assertEquals(position, mercenary.getMovementState().findNextPosition(newGame));
+
+        // labels are recomputed when the topology changes
+        door.unlockDoor();
+        components = newGame.getConnectedComponents(mercenary);
+        assertEquals(1, components.getNumComponents());
+        assertTrue(newGame.isReachable(mercenary, new Position(5, 5), new Position(1, 1)));
+        assertNotEquals(position, mercenary.getMovementState().findNextPosition(newGame));
+    }
+
+    /**
+     * Tests that the change journal records the moves and state changes of the latest tick
+     */
+    @Test
+    public void testChangeJournal() {
+        Mode mode = new Standard();
+        Game newGame = newSevenBySevenGame(mode);
+        Player player = new Player(new Position(1, 1), mode.initialHealth());
+        Boulder boulder = new Boulder(new Position(2, 1));
+        FloorSwitch floorSwitch = new FloorSwitch(new Position(3, 1));
+        newGame.addEntity(player);
+        newGame.addEntity(boulder);
+        newGame.addEntity(floorSwitch);
+        assertNull(newGame.getChangeJournal());
+
+        newGame.setChangeJournalEnabled(true);
+        ChangeJournal journal = newGame.getChangeJournal();
+        assertTrue(journal.isEmpty());
+
+        // player pushes the boulder onto the switch, triggering it
+        newGame.tick(null, Direction.RIGHT);
+        assertEquals(3, journal.size());
+        assertEquals(ChangeJournal.Kind.MOVED, journal.getKind(0));
+        assertEquals(boulder, journal.getEntity(0));
+        assertEquals(new Position(2, 1), journal.getPreviousPosition(0));
+        assertEquals(ChangeJournal.Kind.CHANGED, journal.getKind(1));
+        assertEquals(floorSwitch, journal.getEntity(1));
+        assertEquals(player, journal.getEntity(2));
+        assertEquals(new Position(1, 1), journal.getPreviousPosition(2));
+
+        // state is recorded when it is set to a new value
+        int size = journal.size();
+        player.setHealth(player.getHealth() - 1);
+        player.setHealth(player.getHealth());
+        Mercenary mercenary = new Mercenary(new Position(5, 5), mode.damageMultiplier(), player);
+        newGame.addEntity(mercenary);
+        mercenary.setBribed(true);
+        mercenary.setBribed(true);
+        assertEquals(size + 3, journal.size());
+        assertEquals(ChangeJournal.Kind.CHANGED, journal.getKind(size));
+        assertEquals(player, journal.getEntity(size));
+        assertEquals(ChangeJournal.Kind.CHANGED, journal.getKind(size + 2));
+        assertEquals(mercenary, journal.getEntity(size + 2));
+
+        // the journal only covers the latest tick
+        newGame.removeEntity(boulder);
+        newGame.tick(null, Direction.NONE);
+        List<ChangeJournal.Kind> kinds = new ArrayList<>();
+        journal.forEach((kind, entity, previous) -> kinds.add(kind));
+        assertFalse(kinds.contains(ChangeJournal.Kind.REMOVED));
+
+        newGame.setChangeJournalEnabled(false);
+        assertNull(newGame.getChangeJournal());
+    }
+
+    /**
+     * Tests that distance tables are built under the threshold and shared
+     */
+    @Test
+    public void testDistanceTable() {
+        Mode mode = new Standard();
+        List<Game> games = new ArrayList<>();
+        List<Mercenary> mercenaries = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Game newGame = newSevenBySevenGame(mode);
+            Player player = new Player(new Position(1, 1), mode.initialHealth());
+            Mercenary mercenary = new Mercenary(
+                new Position(5, 5),
+                mode.damageMultiplier(),
+                player
+            );
+            newGame.addEntity(player);
+            newGame.addEntity(mercenary);
+            newGame.addEntity(new Wall(new Position(2, 2)));
+            newGame.addEntity(new Wall(new Position(3, 2)));
+            newGame.addEntity(new SwampTile(new Position(3, 4), 3));
+            newGame.setTemplateHash("distance table template", true);
+            games.add(newGame);
+            mercenaries.add(mercenary);
+        }
+        Game newGame = games.get(0);
+        Mercenary mercenary = mercenaries.get(0);
+        assertNull(newGame.getDistanceTable(mercenary));
+
+        // the dungeon has more unblocked cells than the threshold
+        newGame.setDistanceTableThreshold(20);
+        assertNull(newGame.getDistanceTable(mercenary));
+
+        // thresholds beyond the largest table are rejected, and larger tables not built
+        assertThrows(IllegalArgumentException.class, () -> newGame.setDistanceTableThreshold(-1));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> newGame.setDistanceTableThreshold(DistanceTable.MAX_NODES + 1)
+        );
+        Game openGame = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+        openGame.setDimensions(20, 20);
+        PassabilityGrid grid = openGame.getPassabilityGrid(mercenary);
+        assertNull(DistanceTable.build(grid, openGame.getMovementCosts()));
+
+        // games of the same dungeon with the same topology share a table
+        newGame.setDistanceTableThreshold(100);
+        games.get(1).setDistanceTableThreshold(100);
+        DistanceTable table = newGame.getDistanceTable(mercenary);
+        assertNotNull(table);
+        assertSame(table, games.get(1).getDistanceTable(mercenaries.get(1)));
+        assertDistancesMatch(newGame, mercenary, table);
+
+        // the mercenary moves as it would following a distance field to the player
+        DistanceField field = newGame.getPlayerDistanceField(mercenary);
+        assertEquals(
+            field.findNextPosition(newGame, mercenary),
+            mercenary.getMovementState().findNextPosition(newGame)
+        );
+
+        // the table is rebuilt when the topology changes, and no longer shared
+        newGame.addEntity(new Wall(new Position(4, 4)));
+        DistanceTable rebuilt = newGame.getDistanceTable(mercenary);
+        assertNotSame(table, rebuilt);
+        assertSame(table, games.get(1).getDistanceTable(mercenaries.get(1)));
+        assertDistancesMatch(newGame, mercenary, rebuilt);
+    }
+
+    /**
+     * Tests that games of the same template share search results until their topology changes
+     */
+    @Test
+    public void testSharedTopology() {
+        Mode mode = new Standard();
+        List<Game> games = new ArrayList<>();
+        List<Mercenary> mercenaries = new ArrayList<>();
+        List<Door> doors = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Game newGame = newSevenBySevenGame(mode);
+            Player player = new Player(new Position(1, 1), mode.initialHealth());
+            Mercenary mercenary = new Mercenary(
+                new Position(5, 5),
+                mode.damageMultiplier(),
+                player
+            );
+            Door door = new Door(new Position(3, 3), 1);
+            newGame.addEntity(player);
+            newGame.addEntity(mercenary);
+            newGame.addEntity(door);
+            for (int x = 1; x < 6; x++) {
+                if (x != 3) newGame.addEntity(new Wall(new Position(x, 3)));
+            }
+            newGame.setTemplateHash((i == 2) ? "other template" : "shared template", i < 3);
+            games.add(newGame);
+            mercenaries.add(mercenary);
+            doors.add(door);
+        }
+
+        // games of the same template with the same topology share results
+        Game first = games.get(0);
+        Game second = games.get(1);
+        assertSame(
+            first.getPlayerDistanceField(mercenaries.get(0)),
+            second.getPlayerDistanceField(mercenaries.get(1))
+        );
+        assertSame(
+            first.getConnectedComponents(mercenaries.get(0)),
+            second.getConnectedComponents(mercenaries.get(1))
+        );
+        // games of a different template do not
+        assertNotSame(
+            first.getConnectedComponents(mercenaries.get(0)),
+            games.get(2).getConnectedComponents(mercenaries.get(2))
+        );
+
+        // a game which only looks the template up shares what was published
+        assertSame(
+            first.getConnectedComponents(mercenaries.get(0)),
+            games.get(3).getConnectedComponents(mercenaries.get(3))
+        );
+
+        // a game stops sharing once its topology changes, and changed topologies are kept
+        // to each game even once they are identical
+        doors.get(0).unlockDoor();
+        ConnectedComponents components = first.getConnectedComponents(mercenaries.get(0));
+        assertEquals(1, components.getNumComponents());
+        assertNotSame(components, second.getConnectedComponents(mercenaries.get(1)));
+        assertEquals(2, second.getConnectedComponents(mercenaries.get(1)).getNumComponents());
+        doors.get(1).unlockDoor();
+        assertNotSame(components, second.getConnectedComponents(mercenaries.get(1)));
+        assertEquals(1, second.getConnectedComponents(mercenaries.get(1)).getNumComponents());
+        assertNotSame(
+            first.getPlayerDistanceField(mercenaries.get(0)),
+            second.getPlayerDistanceField(mercenaries.get(1))
+        );
+
+        // a game without a template shares nothing
+        Game untemplated = newSevenBySevenGame(mode);
+        Player player = new Player(new Position(1, 1), mode.initialHealth());
+        untemplated.addEntity(player);
+        assertNull(untemplated.getTemplateHash());
+        assertNotSame(
+            untemplated.getConnectedComponents(player),
+            newSevenBySevenGame(mode).getConnectedComponents(player)
+        );
+    }
+
+    /**
+     * Tests that enemies deciding in parallel move as they do in turn
+     */
+    @Test
+    public void testParallelDecisions() throws InvalidActionException {
+        Mode mode = new Standard();
+        List<Game> games = new ArrayList<>();
+        List<List<Mercenary>> mercenaries = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Game newGame = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+            newGame.setDimensions(40, 9);
+            Player player = new Player(new Position(2, 4), mode.initialHealth());
+            newGame.addEntity(player);
+            for (int y = 0; y < 9; y++) {
+                if (y != 1 && y != 6) newGame.addEntity(new Wall(new Position(12, y)));
+                if (y != 4) newGame.addEntity(new Wall(new Position(20, y)));
+            }
+            newGame.addEntity(new SwampTile(new Position(20, 4), 2));
+            newGame.addEntity(new Boulder(new Position(3, 4)));
+            List<Mercenary> crowd = new ArrayList<>();
+            for (int y = 0; y < 9; y += 2) {
+                for (int x = 28; x < 40; x += 4) {
+                    Mercenary mercenary = new Mercenary(
+                        new Position(x, y),
+                        mode.damageMultiplier(),
+                        player
+                    );
+                    newGame.addEntity(mercenary);
+                    crowd.add(mercenary);
+                }
+            }
+            newGame.setParallelDecisionsEnabled(i == 0);
+            games.add(newGame);
+            mercenaries.add(crowd);
+        }
+
+        // enemies move exactly as they do when each decides in turn
+        Direction[] moves = {
+            Direction.RIGHT,
+            Direction.UP,
+            Direction.LEFT,
+            Direction.DOWN,
+            Direction.DOWN,
+            Direction.RIGHT,
+        };
+        for (int tick = 0; tick < 18; tick++) {
+            for (Game newGame : games) newGame.tick(null, moves[tick % moves.length]);
+            for (int m = 0; m < mercenaries.get(0).size(); m++) {
+                assertEquals(
+                    mercenaries.get(1).get(m).getPosition(),
+                    mercenaries.get(0).get(m).getPosition()
+                );
+            }
+        }
+    }
+
+    /**
+     * Creates a game of the seven by seven dungeon enclosed by walls
+     */
+    private static Game newSevenBySevenGame(Mode mode) {
+        return new Game(
+            "game",
+            TestHelpers.sevenBySevenWallBoundary(),
+            new ExitCondition(),
+            mode
+        );
+    }
+
+    /**
+     * Checks that a distance table agrees with a distance field to every cell of a game
+     */
+    private void assertDistancesMatch(Game game, Mercenary mercenary, DistanceTable table) {
+        for (int y = 0; y < game.getHeight(); y++) {
+            for (int x = 0; x < game.getWidth(); x++) {
+                Position target = new Position(x, y);
+                DistanceField field = new DistanceField(game, mercenary, target);
+                for (int sy = 0; sy < game.getHeight(); sy++) {
+                    for (int sx = 0; sx < game.getWidth(); sx++) {
+                        Position src = new Position(sx, sy);
+                        if (src.equals(target)) continue;
+                        assertEquals(field.getDistance(src), table.getDistance(src, target));
+                    }
+                }
+            }
+        }
+    }
 }
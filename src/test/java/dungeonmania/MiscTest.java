@@ -1,7 +1,11 @@
 package dungeonmania;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import dungeonmania.util.Direction;
+import dungeonmania.util.Position;
 import org.junit.jupiter.api.Test;
 
 public class MiscTest {
@@ -11,4 +15,18 @@ public class MiscTest {
         assertTrue(DungeonManiaController.dungeons().size() > 0);
         assertTrue(DungeonManiaController.dungeons().contains("maze"));
     }
+
+    @Test
+    public void testPositionFlyweights() {
+        Position position = Position.of(3, 4, 2);
+        assertSame(position, Position.of(3, 4, 2));
+        assertSame(position, new Position(3, 3, 2).translateBy(Direction.DOWN));
+        assertSame(position, new Position(3, 4).asLayer(2));
+        assertSame(Position.of(3, 4), position.asLayer(0));
+
+        // coordinates outside of the cache still behave as values
+        Position far = Position.of(1000, -1, 2);
+        assertEquals(far, Position.of(1000, -1));
+        assertEquals(far.hashCode(), new Position(1000, -1).hashCode());
+    }
 }
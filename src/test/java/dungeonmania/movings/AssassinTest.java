@@ -621,11 +621,11 @@ public class AssassinTest {
         game.interact(assassin.getId());
 
         // The distance between the player and the assassin should decrease
-        int distance = assassin.getDistanceToPlayer(game, updatedPlayerPos);
+        int distance = getDistanceToPlayer(game, assassin, updatedPlayerPos);
         for (int i = 0; i < 10; i++) {
             game.tick(null, Direction.NONE);
-            assertTrue(assassin.getDistanceToPlayer(game, updatedPlayerPos) <= distance);
-            distance = assassin.getDistanceToPlayer(game, updatedPlayerPos);
+            assertTrue(getDistanceToPlayer(game, assassin, updatedPlayerPos) <= distance);
+            distance = getDistanceToPlayer(game, assassin, updatedPlayerPos);
         }
 
         // After 10 ticks, the assassin will no longer be mind controlled
@@ -634,4 +634,11 @@ public class AssassinTest {
 
         assertTrue(game.getEntity(assassin.getId()) == null);
     }
+
+    /**
+     * Find the (shortest) distance between the player and a MovingEntity
+     */
+    private static int getDistanceToPlayer(Game game, MovingEntity entity, Position playerPos) {
+        return game.getPathSearch(entity).findPathCost(entity.getPosition(), playerPos);
+    }
 }
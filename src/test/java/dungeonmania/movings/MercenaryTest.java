@@ -603,11 +603,11 @@ public class MercenaryTest {
         game.interact(mercenary.getId());
 
         // The distance between the player and the mercenary should decrease
-        int distance = mercenary.getDistanceToPlayer(game, updatedPlayerPos);
+        int distance = getDistanceToPlayer(game, mercenary, updatedPlayerPos);
         for (int i = 0; i < 10; i++) {
             game.tick(null, Direction.NONE);
-            assertTrue(mercenary.getDistanceToPlayer(game, updatedPlayerPos) <= distance);
-            distance = mercenary.getDistanceToPlayer(game, updatedPlayerPos);
+            assertTrue(getDistanceToPlayer(game, mercenary, updatedPlayerPos) <= distance);
+            distance = getDistanceToPlayer(game, mercenary, updatedPlayerPos);
         }
 
         // After 10 ticks, the mercenary will no longer be mind controlled
@@ -616,4 +616,11 @@ public class MercenaryTest {
 
         assertTrue(game.getEntity(mercenary.getId()) == null);
     }
+
+    /**
+     * Find the (shortest) distance between the player and a MovingEntity
+     */
+    private static int getDistanceToPlayer(Game game, MovingEntity entity, Position playerPos) {
+        return game.getPathSearch(entity).findPathCost(entity.getPosition(), playerPos);
+    }
 }
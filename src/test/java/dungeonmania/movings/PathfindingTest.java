@@ -0,0 +1,559 @@
+package dungeonmania.movings;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dungeonmania.EntityFactory;
+import dungeonmania.Maze;
+import dungeonmania.model.Game;
+import dungeonmania.model.PassabilityGrid;
+import dungeonmania.model.entities.movings.Mercenary;
+import dungeonmania.model.entities.movings.MovingEntity;
+import dungeonmania.model.entities.movings.movement.AStarSearch;
+import dungeonmania.model.entities.movings.movement.ClusterGraph;
+import dungeonmania.model.entities.movings.movement.DistanceField;
+import dungeonmania.model.entities.movings.player.Player;
+import dungeonmania.model.entities.statics.SwampTile;
+import dungeonmania.model.entities.statics.Wall;
+import dungeonmania.model.goal.ExitCondition;
+import dungeonmania.model.mode.Mode;
+import dungeonmania.model.mode.Standard;
+import dungeonmania.util.Position;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class PathfindingTest {
+
+    /**
+     * Creates a game from a dungeon JSONObject
+     */
+    private static Game loadGame(JSONObject dungeon) {
+        Mode mode = new Standard();
+        Game game = new Game(
+            "game",
+            EntityFactory.extractEntities(dungeon, mode),
+            new ExitCondition(),
+            mode
+        );
+        EntityFactory.applyDimensions(dungeon, game);
+        return game;
+    }
+
+    /**
+     * Shortest path costs from a source to every cell, found by relaxing edges until nothing
+     * changes, as a reference for the costs found by the faster searches.
+     */
+    private static Map<Position, Integer> labelCorrectingCosts(
+        Game game,
+        MovingEntity entity,
+        Position src
+    ) {
+        Map<Position, Integer> dist = new HashMap<>();
+        Queue<Position> queue = new LinkedList<>();
+        dist.put(src, 0);
+        queue.add(src);
+        while (!queue.isEmpty()) {
+            Position vertex = queue.remove();
+            for (Position next : game.getMoveablePositions(entity, vertex)) {
+                SwampTile swampTile = game.getSwampTile(next);
+                int cost = dist.get(vertex) + ((swampTile != null) ? swampTile.getMovementFactor() : 1);
+                if (!dist.containsKey(next) || cost < dist.get(next)) {
+                    dist.put(next, cost);
+                    queue.add(next);
+                }
+            }
+        }
+        return dist;
+    }
+
+    @Test
+    public void testSwampCostsInGeneratedDungeon() {
+        Random random = new Random(2521);
+        Maze maze = new Maze(51, 51, new Position(1, 1), new Position(49, 49));
+        Game game = loadGame(maze.toJSON());
+        MovingEntity player = game.getPlayer();
+
+        // scatter swamp tiles over the open cells
+        for (int y = 1; y < 50; y++) {
+            for (int x = 1; x < 50; x++) {
+                if (maze.getMazePosition(x, y) && random.nextInt(4) == 0) {
+                    game.addEntity(new SwampTile(new Position(x, y), 2 + random.nextInt(4)));
+                }
+            }
+        }
+
+        Mercenary mercenary = new Mercenary(new Position(49, 49), 1, game.getPlayer());
+        game.addEntity(mercenary);
+        DistanceField field = game.getPlayerDistanceField(mercenary);
+        Map<Position, Integer> reachable = labelCorrectingCosts(game, player, player.getPosition());
+        for (Position position : reachable.keySet()) {
+            // following the field to the player adds up to the distance of the start
+            mercenary.setPosition(position);
+            int cost = 0;
+            while (!mercenary.getPosition().equals(player.getPosition())) {
+                Position next = field.findNextPosition(game, mercenary);
+                List<Position> moves = game.getMoveablePositions(mercenary, mercenary.getPosition());
+                assertTrue(moves.contains(next));
+                SwampTile swampTile = game.getSwampTile(next);
+                cost += (swampTile != null) ? swampTile.getMovementFactor() : 1;
+                mercenary.setPosition(next);
+            }
+            assertEquals(field.getDistance(position), cost);
+        }
+    }
+
+    @Test
+    public void testPlayerDistanceField() {
+        Random random = new Random(2521);
+        Maze maze = new Maze(31, 31, new Position(1, 1), new Position(29, 29));
+        Game game = loadGame(maze.toJSON());
+        MovingEntity player = game.getPlayer();
+        for (int y = 1; y < 30; y++) {
+            for (int x = 1; x < 30; x++) {
+                if (maze.getMazePosition(x, y) && random.nextInt(4) == 0) {
+                    game.addEntity(new SwampTile(new Position(x, y), 2 + random.nextInt(4)));
+                }
+            }
+        }
+        Mercenary mercenary = new Mercenary(new Position(29, 29), 1, game.getPlayer());
+        Mercenary other = new Mercenary(new Position(29, 29), 1, game.getPlayer());
+        game.addEntity(mercenary);
+        game.addEntity(other);
+
+        // followers with the same collision rules share a field until the player moves
+        DistanceField field = game.getPlayerDistanceField(mercenary);
+        assertSame(field, game.getPlayerDistanceField(other));
+
+        // the distance from each cell matches a search from that cell to the player
+        for (int y = 1; y < 30; y += 3) {
+            for (int x = 1; x < 30; x += 3) {
+                Position position = new Position(x, y);
+                if (!maze.getMazePosition(x, y)) continue;
+                Map<Position, Integer> costs = labelCorrectingCosts(game, mercenary, position);
+                assertEquals(costs.get(player.getPosition()), field.getDistance(position));
+            }
+        }
+
+        player.setPosition(new Position(29, 29));
+        assertNotSame(field, game.getPlayerDistanceField(mercenary));
+        assertEquals(0, game.getPlayerDistanceField(mercenary).getDistance(new Position(29, 29)));
+    }
+
+    @Test
+    public void testFleePositions() {
+        Maze maze = new Maze(31, 31, new Position(15, 15), new Position(29, 29));
+        Game game = loadGame(maze.toJSON());
+        MovingEntity player = game.getPlayer();
+        Mercenary mercenary = new Mercenary(new Position(1, 1), 1, game.getPlayer());
+        game.addEntity(mercenary);
+        DistanceField field = game.getPlayerDistanceField(mercenary);
+
+        // the flee step matches measuring the path to the player from each neighbour
+        for (int y = 1; y < 30; y++) {
+            for (int x = 1; x < 30; x++) {
+                if (!maze.getMazePosition(x, y)) continue;
+                mercenary.setPosition(new Position(x, y));
+                int optimalPathLength = Integer.MIN_VALUE;
+                Position optimalPathPosition = mercenary.getPosition();
+                for (Position position : game.getMoveablePositions(mercenary, mercenary.getPosition())) {
+                    int pathLen = bfsDistance(game, mercenary, position, player.getPosition());
+                    if (pathLen > optimalPathLength) {
+                        optimalPathLength = pathLen;
+                        optimalPathPosition = position;
+                    }
+                }
+                assertEquals(optimalPathPosition, field.findFleePosition(game, mercenary));
+            }
+        }
+    }
+
+    @Test
+    public void testBoundedDistance() {
+        Maze maze = new Maze(31, 31, new Position(15, 15), new Position(29, 29));
+        Game game = loadGame(maze.toJSON());
+        MovingEntity player = game.getPlayer();
+        PassabilityGrid grid = game.getPassabilityGrid(player);
+        AStarSearch search = game.getPathSearch(player);
+        assertSame(search, game.getPathSearch(player));
+
+        // matches breadth first search for every pair of open cells near each other
+        for (int y = 1; y < 30; y++) {
+            for (int x = 1; x < 30; x++) {
+                Position src = new Position(x, y);
+                if (!maze.getMazePosition(x, y)) continue;
+                for (int dy = -6; dy <= 6; dy++) {
+                    for (int dx = -6; dx <= 6; dx++) {
+                        Position dest = new Position(x + dx, y + dy);
+                        if (grid.isBlocked(dest.getX(), dest.getY())) continue;
+                        int distance = bfsDistance(game, player, src, dest);
+                        assertEquals(distance, search.findPathCost(src, dest));
+                        for (int maxDepth : new int[] { 2, 5 }) {
+                            assertEquals(
+                                (distance <= maxDepth) ? distance : Integer.MAX_VALUE,
+                                AStarSearch.distanceWithin(game, player, src, dest, maxDepth)
+                            );
+                            // only cells within maxDepth, arrived from each side, are expanded
+                            if (src.equals(dest) || Math.abs(dx) + Math.abs(dy) > maxDepth) {
+                                continue;
+                            }
+                            int withinDepth = 2 * maxDepth * (maxDepth + 1) + 1;
+                            assertTrue(search.getNumExpanded() <= 4 * withinDepth + 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Length of the shortest path from src to dest found by a breadth first search over the
+     * passability grid, as a reference for the searches which find it faster.
+     */
+    private static int bfsDistance(Game game, MovingEntity entity, Position src, Position dest) {
+        if (src.equals(dest)) return 0;
+        PassabilityGrid grid = game.getPassabilityGrid(entity);
+        int source = grid.indexOf(src.getX(), src.getY());
+        int target = grid.indexOf(dest.getX(), dest.getY());
+        if (source == -1 || target == -1) return Integer.MAX_VALUE;
+        int[][] moves = { { 0, 1 }, { -1, 0 }, { 1, 0 }, { 0, -1 } };
+        int[] dist = new int[grid.getWidth() * grid.getHeight()];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[dist.length];
+        int head = 0;
+        int tail = 0;
+        dist[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int vertex = queue[head++];
+            for (int[] move : moves) {
+                int x = grid.getX(vertex) + move[0];
+                int y = grid.getY(vertex) + move[1];
+                if (grid.isBlocked(x, y) || dist[grid.indexOf(x, y)] != -1) continue;
+                dist[grid.indexOf(x, y)] = dist[vertex] + 1;
+                queue[tail++] = grid.indexOf(x, y);
+            }
+        }
+        return (dist[target] == -1) ? Integer.MAX_VALUE : dist[target];
+    }
+
+    /**
+     * Number of cells a breadth first search from src expands before reaching dest, as a
+     * bound on the cells A* may expand.
+     */
+    private static int bfsExpansions(Game game, MovingEntity entity, Position src, Position dest) {
+        Map<Position, Boolean> visited = new HashMap<>();
+        Queue<Position> queue = new LinkedList<>();
+        visited.put(src, true);
+        queue.add(src);
+        int numExpanded = 0;
+        while (!queue.isEmpty()) {
+            Position vertex = queue.remove();
+            if (vertex.equals(dest)) return numExpanded;
+            numExpanded++;
+            for (Position next : game.getMoveablePositions(entity, vertex)) {
+                if (visited.putIfAbsent(next, true) == null) queue.add(next);
+            }
+        }
+        return numExpanded;
+    }
+
+    /**
+     * Checks A* against breadth first search and relaxing swamp costs between opposite
+     * corners of a dungeon, and that it expands no more cells than breadth first search.
+     */
+    private static void assertAStarMatches(Game game, Position src, Position dest) {
+        MovingEntity player = game.getPlayer();
+
+        AStarSearch hops = new AStarSearch(game, player, false);
+        assertEquals(bfsDistance(game, player, src, dest), hops.findPathCost(src, dest));
+        int bfsExpanded = bfsExpansions(game, player, src, dest);
+        assertTrue(hops.getNumExpanded() <= bfsExpanded);
+
+        AStarSearch swamp = new AStarSearch(game, player, true);
+        Map<Position, Integer> costs = labelCorrectingCosts(game, player, src);
+        assertEquals(costs.getOrDefault(dest, Integer.MAX_VALUE), swamp.findPathCost(src, dest));
+    }
+
+    @Test
+    public void testAStarInGeneratedDungeons() {
+        Random random = new Random(2521);
+        for (int size : new int[] { 51, 101 }) {
+            Position start = new Position(1, 1);
+            Position end = new Position(size - 2, size - 2);
+
+            // a generated maze, where most paths are long and winding
+            Maze maze = new Maze(size, size, start, end);
+            Game mazeGame = loadGame(maze.toJSON());
+            for (int y = 1; y < size - 1; y++) {
+                for (int x = 1; x < size - 1; x++) {
+                    if (maze.getMazePosition(x, y) && random.nextInt(8) == 0) {
+                        mazeGame.addEntity(new SwampTile(new Position(x, y), 2 + random.nextInt(4)));
+                    }
+                }
+            }
+            assertAStarMatches(mazeGame, start, end);
+
+            // an open dungeon with scattered walls and swamps
+            Mode mode = new Standard();
+            Game openGame = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+            openGame.setDimensions(size, size);
+            openGame.addEntity(new Player(start, mode.initialHealth()));
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    Position position = new Position(x, y);
+                    if (position.equals(start) || position.equals(end)) continue;
+                    int roll = random.nextInt(10);
+                    if (roll == 0) openGame.addEntity(new Wall(position));
+                    if (roll == 1) openGame.addEntity(new SwampTile(position, 2 + random.nextInt(4)));
+                }
+            }
+            assertAStarMatches(openGame, start, end);
+        }
+    }
+
+    @Test
+    public void testJumpPointSearch() {
+        Random random = new Random(2521);
+        Mode mode = new Standard();
+        for (int wallChance : new int[] { 0, 20, 5, 3 }) {
+            int size = 101;
+            Position start = new Position(1, 1);
+            Game game = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+            game.setDimensions(size, size);
+            Player player = new Player(start, mode.initialHealth());
+            game.addEntity(player);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    Position position = new Position(x, y);
+                    if (position.equals(start) || wallChance == 0) continue;
+                    if (random.nextInt(wallChance) == 0) game.addEntity(new Wall(position));
+                }
+            }
+
+            // path lengths match breadth first search between random cells
+            AStarSearch search = new AStarSearch(game, player, true);
+            for (int i = 0; i < 200; i++) {
+                Position src = new Position(random.nextInt(size), random.nextInt(size));
+                Position dest = new Position(random.nextInt(size), random.nextInt(size));
+                assertEquals(bfsDistance(game, player, src, dest), search.findPathCost(src, dest));
+            }
+
+            // jumping across open areas expands far fewer cells
+            Position end = new Position(size - 2, size - 2);
+            assertEquals(bfsDistance(game, player, start, end), search.findPathCost(start, end));
+            int bfsExpanded = bfsExpansions(game, player, start, end);
+            if (wallChance == 0 || wallChance == 20) {
+                assertTrue(search.getNumExpanded() * 10 <= bfsExpanded);
+            }
+        }
+
+        // swamp tiles make costs uneven, so the weighted search is used instead
+        Game swampGame = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+        swampGame.setDimensions(11, 11);
+        Player player = new Player(new Position(0, 0), mode.initialHealth());
+        swampGame.addEntity(player);
+        for (int y = 0; y < 10; y++) swampGame.addEntity(new SwampTile(new Position(5, y), 4));
+        AStarSearch search = new AStarSearch(swampGame, player, true);
+        assertEquals(13, search.findPathCost(new Position(0, 0), new Position(10, 0)));
+        AStarSearch hops = new AStarSearch(swampGame, player, false);
+        assertEquals(10, hops.findPathCost(new Position(0, 0), new Position(10, 0)));
+    }
+
+    @Test
+    public void testClusterGraph() {
+        Random random = new Random(2521);
+        Mode mode = new Standard();
+        int size = 160;
+        Game game = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+        game.setDimensions(size, size);
+        Player player = new Player(new Position(size - 1, size - 1), mode.initialHealth());
+        game.addEntity(player);
+        Mercenary mercenary = new Mercenary(new Position(0, 0), mode.damageMultiplier(), player);
+        game.addEntity(mercenary);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Position position = new Position(x, y);
+                if (game.getEntities(position).isEmpty() && random.nextInt(4) == 0) {
+                    game.addEntity(new Wall(position));
+                }
+            }
+        }
+
+        // followers walk paths close to the shortest, and stay put when there is no path
+        ClusterGraph clusterGraph = game.getClusterGraph(mercenary);
+        int totalSteps = 0;
+        int totalShortest = 0;
+        for (int i = 0; i < 40; i++) {
+            Position src = new Position(random.nextInt(size), random.nextInt(size));
+            Position dest = new Position(random.nextInt(size), random.nextInt(size));
+            if (!game.getEntities(src).isEmpty() || !game.getEntities(dest).isEmpty()) continue;
+            mercenary.setPosition(src);
+            int shortest = bfsDistance(game, mercenary, src, dest);
+            if (shortest == Integer.MAX_VALUE) {
+                assertEquals(src, clusterGraph.findNextPosition(mercenary, dest));
+                continue;
+            }
+            int steps = 0;
+            while (!mercenary.getPosition().equals(dest)) {
+                Position position = mercenary.getPosition();
+                Position next = clusterGraph.findNextPosition(mercenary, dest);
+                assertTrue(game.getMoveablePositions(mercenary, position).contains(next));
+                mercenary.setPosition(next);
+                steps++;
+                assertTrue(steps <= 2 * shortest);
+            }
+            totalSteps += steps;
+            totalShortest += shortest;
+        }
+        assertTrue(totalSteps * 10 <= totalShortest * 11);
+
+        // only clusters around a change are rebuilt
+        Position src = new Position(3, 3);
+        mercenary.setPosition(src);
+        game.addEntity(new Wall(new Position(40, 40)));
+        clusterGraph.findNextPosition(mercenary, player.getPosition());
+        assertTrue(clusterGraph.getNumRebuilt() <= 5);
+        clusterGraph.findNextPosition(mercenary, player.getPosition());
+        assertEquals(0, clusterGraph.getNumRebuilt());
+    }
+
+    @Test
+    public void testBitboardFloodFill() {
+        Random random = new Random(2521);
+        Mode mode = new Standard();
+        for (int width : new int[] { 7, 64, 65, 130 }) {
+            int height = 40;
+            Game game = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+            game.setDimensions(width, height);
+            Player player = new Player(new Position(0, 0), mode.initialHealth());
+            game.addEntity(player);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (random.nextInt(3) == 0) game.addEntity(new Wall(new Position(x, y)));
+                }
+            }
+
+            // the filled region matches a cell by cell flood fill, from any start
+            PassabilityGrid grid = game.getPassabilityGrid(player);
+            for (int i = 0; i < 20; i++) {
+                int startX = random.nextInt(width);
+                int startY = random.nextInt(height);
+                boolean[] expected = new boolean[width * height];
+                int[] queue = new int[width * height];
+                int head = 0;
+                int tail = 0;
+                expected[startY * width + startX] = true;
+                queue[tail++] = startY * width + startX;
+                while (head < tail) {
+                    int cell = queue[head++];
+                    Position position = new Position(cell % width, cell / width);
+                    for (Position next : game.getMoveablePositions(player, position)) {
+                        int index = next.getY() * width + next.getX();
+                        if (!expected[index]) {
+                            expected[index] = true;
+                            queue[tail++] = index;
+                        }
+                    }
+                }
+
+                long[] reached = grid.floodFill(startX, startY);
+                assertEquals(tail, PassabilityGrid.count(reached));
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        assertEquals(expected[y * width + x], grid.contains(reached, x, y));
+                    }
+                }
+            }
+        }
+
+        // targets sealed off from the source are rejected before searching
+        Game game = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+        game.setDimensions(100, 100);
+        Player player = new Player(new Position(0, 0), mode.initialHealth());
+        game.addEntity(player);
+        for (int i = 0; i < 3; i++) game.addEntity(new Wall(new Position(97 + i, 97)));
+        for (int i = 0; i < 2; i++) game.addEntity(new Wall(new Position(97, 98 + i)));
+        Position src = new Position(0, 0);
+        Position dest = new Position(99, 99);
+        AStarSearch search = new AStarSearch(game, player, true);
+        assertEquals(Integer.MAX_VALUE, search.findPathCost(src, dest));
+        assertEquals(0, search.getNumExpanded());
+    }
+
+    @Test
+    public void testIncrementalReplanning() {
+        Random random = new Random(2521);
+        Mode mode = new Standard();
+        int size = 60;
+        Game game = new Game("game", new ArrayList<>(), new ExitCondition(), mode);
+        game.setDimensions(size, size);
+        Player player = new Player(new Position(size - 1, size - 1), mode.initialHealth());
+        game.addEntity(player);
+        List<Mercenary> mercenaries = new ArrayList<>();
+        for (Position start : new Position[] { new Position(0, 0), new Position(0, size - 1) }) {
+            Mercenary mercenary = new Mercenary(start, mode.damageMultiplier(), player);
+            mercenaries.add(mercenary);
+            game.addEntity(mercenary);
+        }
+        List<Wall> walls = new ArrayList<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Position position = new Position(x, y);
+                if (!game.getEntities(position).isEmpty()) continue;
+                int roll = random.nextInt(10);
+                if (roll < 2) {
+                    Wall wall = new Wall(position);
+                    walls.add(wall);
+                    game.addEntity(wall);
+                }
+                if (roll == 2) game.addEntity(new SwampTile(position, 2 + random.nextInt(4)));
+            }
+        }
+
+        // followers move exactly as with a fresh field, as the player and dungeon change
+        PassabilityGrid grid = game.getPassabilityGrid(player);
+        int totalSettled = 0;
+        int totalFresh = 0;
+        for (int tick = 0; tick < 300; tick++) {
+            List<Position> playerMoves = game.getMoveablePositions(player, player.getPosition());
+            player.setPosition(playerMoves.get(random.nextInt(playerMoves.size())));
+            if (tick % 10 == 0) {
+                Wall wall = walls.get(random.nextInt(walls.size()));
+                if (wall.getGame() == null) {
+                    game.addEntity(wall);
+                } else {
+                    game.removeEntity(wall);
+                }
+            }
+            if (tick % 50 == 0) {
+                Position position = new Position(random.nextInt(size), random.nextInt(size));
+                game.addEntity(new SwampTile(position, 2 + random.nextInt(4)));
+            }
+
+            DistanceField field = game.getPlayerDistanceField(mercenaries.get(0));
+            int settled = field.getNumSettled();
+            for (Mercenary mercenary : mercenaries) {
+                assertSame(field, game.getPlayerDistanceField(mercenary));
+                DistanceField fresh = new DistanceField(game, mercenary, player.getPosition());
+                Position expected = fresh.findNextPosition(game, mercenary);
+                assertEquals(expected, field.findNextPosition(game, mercenary));
+                mercenary.setPosition(expected);
+            }
+            // a fresh search which runs to completion settles every cell reachable
+            Position target = player.getPosition();
+            totalFresh += PassabilityGrid.count(grid.floodFill(target.getX(), target.getY()));
+            totalSettled += field.getNumSettled() - settled;
+        }
+        assertTrue(totalSettled * 4 < totalFresh);
+    }
+}
@@ -1,6 +1,7 @@
 package dungeonmania.statics;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import dungeonmania.model.Game;
@@ -295,4 +296,26 @@ public class PortalTest {
         // Mercenary move to portal and teleports
         assertEquals(new Position(7, 6), mercenary.getPosition());
     }
+
+    /**
+     * Test that portals are paired by colour as portals are added and removed.
+     */
+    @Test
+    public void portalPairing() {
+        Game game = new Game("game", new ArrayList<>(), new ExitCondition(), new Standard());
+        Portal blueStart = new Portal(new Position(0, 0), "BLUE");
+        Portal blueEnd = new Portal(new Position(2, 2), "BLUE");
+        Portal redStart = new Portal(new Position(4, 0), "RED");
+        game.addEntity(blueStart);
+        game.addEntity(redStart);
+        assertNull(blueStart.findPortal(game));
+
+        game.addEntity(blueEnd);
+        assertEquals(blueEnd, blueStart.findPortal(game));
+        assertEquals(blueStart, blueEnd.findPortal(game));
+        assertNull(redStart.findPortal(game));
+
+        game.removeEntity(blueEnd);
+        assertNull(blueStart.findPortal(game));
+    }
 }